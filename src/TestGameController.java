@@ -1,4 +1,5 @@
 import static javafx.scene.input.KeyCode.A;
+import static javafx.scene.input.KeyCode.BACK_SPACE;
 import static javafx.scene.input.KeyCode.D;
 import static javafx.scene.input.KeyCode.SHIFT;
 import static javafx.scene.input.KeyCode.SPACE;
@@ -6,9 +7,9 @@ import static javafx.scene.input.KeyCode.W;
 import static utilities.metadata.StaticUtilities.getFillFromString;
 
 import javafx.scene.paint.Paint;
+import utilities.Agent.MotionState;
 import utilities.GameController;
 import utilities.Player;
-import utilities.Player.MotionState;
 
 /**
  * @author Russell Newton
@@ -29,13 +30,14 @@ public class TestGameController extends GameController {
     player.setWalkLeftKey(A);
     player.setWalkRightKey(D);
     player.setRunKey(SHIFT);   // What to hold down to run
+    enableRewind(BACK_SPACE);   // What to hold down to play backwards
   }
 
   @Override
   protected void execute() {
     if (player.isRunning()) {
       player.setSprite(runSprite);
-    } else if (MotionState.JUMPING.getValue()) {
+    } else if (player.is(MotionState.JUMPING)) {
       player.setSprite(jumpSprite);
     } else {
       player.setSprite(walkSprite);
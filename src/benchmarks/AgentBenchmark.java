@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javafx.application.Platform;
+import utilities.BotAgent;
+import utilities.BotAgent.AgentPolicy;
+import utilities.GameController;
+
+/**
+ * Measures the execution cycle time of a headless {@code GameController} against the number of
+ * {@code BotAgents} in it, along with the bytes allocated per cycle. The JavaFX toolkit is started
+ * first, because {@code StaticUtilities} reads the screen size. Run from the project
+ * directory:<br><br> {@code java benchmarks.AgentBenchmark [ticks]}
+ *
+ * @author Russell Newton
+ **/
+public class AgentBenchmark {
+
+  private static final int[] AGENT_COUNTS = {0, 10, 100, 1000, 2000, 5000};
+  private static final int WARM_UP_TICKS = 200;
+  private static final int JUMP_INTERVAL = 150;
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    Platform.startup(() -> {
+    });
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    System.out.println(String.format("%8s %12s %14s %14s", "agents", "ms/tick", "us/agent",
+        "bytes/tick"));
+    for (int agentCount : AGENT_COUNTS) {
+      GameController controller = new EmptyController();
+      controller.initializeHeadless();
+      Random random = new Random(SEED);
+      for (int i = 0; i < agentCount; i++) {
+        AgentPolicy policy = BotAgent.wanderPolicy(JUMP_INTERVAL + random.nextInt(JUMP_INTERVAL));
+        controller.addBot(policy, 5 + random.nextFloat() * 155, 20 + random.nextFloat() * 60);
+      }
+
+      for (int i = 0; i < WARM_UP_TICKS; i++) {
+        controller.tick();
+      }
+      long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+      long tickStart = System.nanoTime();
+      for (int i = 0; i < ticks; i++) {
+        controller.tick();
+      }
+      long tickNanos = System.nanoTime() - tickStart;
+      long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+
+      System.out.println(String.format("%8d %12.3f %14.3f %14d", agentCount,
+          tickNanos / 1e6 / ticks, agentCount == 0 ? 0 : tickNanos / 1e3 / ticks / agentCount,
+          allocated / ticks));
+    }
+    Platform.exit();
+  }
+}
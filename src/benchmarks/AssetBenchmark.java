@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import utilities.metadata.AssetBundle;
+
+/**
+ * Compares reading every asset as a loose file against opening an {@code AssetBundle} once and
+ * reading each asset from its slice of the mapping. The bundle is written from {@code src/assets}
+ * first. Run from the project directory:<br><br> {@code java benchmarks.AssetBenchmark [repeats]}
+ *
+ * @author Russell Newton
+ **/
+public class AssetBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    Path folder = Paths.get("src", "assets").toAbsolutePath();
+    Path bundlePath = Files.createTempFile("assets", ".bundle");
+    AssetBundle.write(folder, bundlePath);
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(folder)) {
+      files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    byte[] scratch = new byte[1 << 16];
+
+    long checksum = 0;
+    long looseStart = System.nanoTime();
+    for (int i = 0; i < repeats; i++) {
+      for (Path file : files) {
+        try (InputStream in = Files.newInputStream(file)) {
+          for (int read = in.read(scratch); read > 0; read = in.read(scratch)) {
+            checksum += scratch[read - 1];
+          }
+        }
+      }
+    }
+    long looseNanos = System.nanoTime() - looseStart;
+
+    long bundleStart = System.nanoTime();
+    for (int i = 0; i < repeats; i++) {
+      try (AssetBundle bundle = new AssetBundle(bundlePath)) {
+        for (String name : bundle.getNames()) {
+          ByteBuffer asset = bundle.get(name);
+          while (asset.hasRemaining()) {
+            int read = Math.min(scratch.length, asset.remaining());
+            asset.get(scratch, 0, read);
+            checksum -= scratch[read - 1];
+          }
+        }
+      }
+    }
+    long bundleNanos = System.nanoTime() - bundleStart;
+    Files.delete(bundlePath);
+
+    long size = files.stream().mapToLong((file) -> file.toFile().length()).sum();
+    System.out.println(String.format("%d assets, %d KiB", files.size(), size / 1024));
+    System.out.println(String.format("%8s %10s %12s", "source", "opens", "ms/pass"));
+    System.out.println(String.format("%8s %10d %12.3f", "loose", files.size(),
+        looseNanos / 1e6 / repeats));
+    System.out.println(String.format("%8s %10d %12.3f", "bundle", 1, bundleNanos / 1e6 / repeats));
+    System.out.println("Checksum " + (checksum == 0 ? "matches" : "differs"));
+  }
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import static utilities.metadata.StaticUtilities.POSITION_ITERATIONS;
+import static utilities.metadata.StaticUtilities.STEP_INTERVAL;
+import static utilities.metadata.StaticUtilities.VELOCITY_ITERATIONS;
+
+import java.util.Random;
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+import utilities.metadata.WorldSettings;
+
+/**
+ * Builds the built-in levels with a headless {@code GameController}, the same way the game loads
+ * them, so benchmarks can step the {@code World} without a screen. The JavaFX toolkit must be
+ * started first, because {@code StaticUtilities} reads the screen size.
+ *
+ * @author Russell Newton
+ **/
+final class BenchmarkLevels {
+
+  static final String[] LEVEL_FILES = {"/assets/obstacles/Obstacles.json"};
+
+  private BenchmarkLevels() {
+  }
+
+  /**
+   * Builds the built-in levels into a new {@code World}. The boundaries are loaded by {@code
+   * initializeHeadless()}, and the rest of {@code LEVEL_FILES} by the controller's {@code
+   * init()}.
+   *
+   * @param worldSettings the settings to build the {@code World} with.
+   * @return the {@code World}, holding the level and the player.
+   */
+  static World createLevel(WorldSettings worldSettings) {
+    LevelController controller = new LevelController(worldSettings);
+    controller.initializeHeadless();
+    return controller.getWorld();
+  }
+
+  /**
+   * Drops {@code count} dynamic crates above the level at positions picked from {@code seed}.
+   */
+  static void addCrates(World world, int count, long seed) {
+    Random random = new Random(seed);
+    int rows = Math.max(1, count / 150);
+    for (int i = 0; i < count; i++) {
+      float x = 1 + random.nextFloat() * 167;
+      float y = 50 + (i % rows) * 1.5f + random.nextFloat();
+      addBox(world, BodyType.DYNAMIC, x, y, 1, 1);
+    }
+  }
+
+  /**
+   * Steps {@code world} once, the same way {@code GameController} does.
+   */
+  static void step(World world) {
+    world.step((float) STEP_INTERVAL / 1000.0f, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+  }
+
+  /**
+   * Sums the positions of every body, to compare the results of two runs.
+   */
+  static double checksum(World world) {
+    double sum = 0;
+    for (Body body = world.getBodyList(); body != null; body = body.getNext()) {
+      sum += body.getPosition().x * 31 + body.getPosition().y;
+    }
+    return sum;
+  }
+
+  private static void addBox(World world, BodyType type, float x, float y, float width,
+      float height) {
+    BodyDef bodyDef = new BodyDef();
+    bodyDef.type = type;
+    bodyDef.position.set(x, y);
+    PolygonShape shape = new PolygonShape();
+    shape.set(new Vec2[]{
+        new Vec2(0, 0), new Vec2(width, 0),
+        new Vec2(width, -height), new Vec2(0, -height)
+    }, 4);
+    FixtureDef fixtureDef = new FixtureDef();
+    fixtureDef.shape = shape;
+    fixtureDef.density = 1;
+    fixtureDef.friction = 0.5f;
+    world.createBody(bodyDef).createFixture(fixtureDef);
+  }
+
+  /**
+   * Loads the built-in levels when it is initialized.
+   */
+  private static class LevelController extends EmptyController {
+
+    private LevelController(WorldSettings worldSettings) {
+      super(worldSettings);
+    }
+
+    @Override
+    protected void init() {
+      createObstacles(LEVEL_FILES);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.AnchorPane;
+import utilities.GameController;
+import utilities.SceneController;
+
+/**
+ * Checks that removing a screen from a {@code SceneController} lets its controller be collected.
+ * The test level is loaded, activated, run for a few cycles, reset, and removed over and over, and
+ * the heap in use after a full collection is compared between the start and the end. Every removed
+ * controller is also watched with a {@code WeakReference}, so any that are still reachable are
+ * counted. The exit status is 1 if the heap grew by more than the allowance or a removed controller
+ * leaked. Run from the project directory:<br><br> {@code java benchmarks.DisposeLeakBenchmark
+ * [cycles] [allowed MiB]}
+ *
+ * @author Russell Newton
+ **/
+public class DisposeLeakBenchmark {
+
+  private static final String SCREEN = "test";
+  private static final String FXML_PATH = "/assets/fxml/TestGameController.fxml";
+  private static final int WARMUP_CYCLES = 50;
+  private static final int TICKS_PER_CYCLE = 20;
+  private static final int REPORT_INTERVAL = 100;
+
+  public static void main(String[] args) throws Exception {
+    int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    double allowedMiB = args.length > 1 ? Double.parseDouble(args[1]) : 8;
+    Platform.startup(() -> {
+    });
+
+    SceneController sceneController = onFxThread(
+        () -> new SceneController(new Scene(new AnchorPane())));
+    ArrayList<WeakReference<GameController>> removed = new ArrayList<>();
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    for (int i = 0; i < WARMUP_CYCLES; i++) {
+      runCycle(sceneController, removed);
+    }
+    long startHeap = usedHeap(memory);
+    int startRemoved = removed.size();
+
+    System.out.println(String.format("%8s %12s %12s", "cycles", "heap MiB", "leaked"));
+    for (int i = 1; i <= cycles; i++) {
+      runCycle(sceneController, removed);
+      if (i % REPORT_INTERVAL == 0 || i == cycles) {
+        long heap = usedHeap(memory);
+        System.out.println(String.format("%8d %12.2f %12d", i, heap / 1048576.0,
+            countReachable(removed, startRemoved)));
+      }
+    }
+
+    long growth = usedHeap(memory) - startHeap;
+    int leaked = countReachable(removed, startRemoved);
+    System.out.println(String.format("Heap grew by %.2f MiB over %d cycles (%.1f B/cycle), "
+        + "%d of %d removed controllers leaked", growth / 1048576.0, cycles,
+        (double) growth / cycles, leaked, removed.size() - startRemoved));
+    Platform.exit();
+    if (growth > allowedMiB * 1048576 || leaked > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Loads, activates, runs, resets, and removes the test screen once.
+   */
+  private static void runCycle(SceneController sceneController,
+      ArrayList<WeakReference<GameController>> removed) throws Exception {
+    onFxThread(() -> {
+      sceneController.addScreen(SCREEN, FXML_PATH);
+      sceneController.activate(SCREEN);
+      GameController controller = sceneController.getCurrentController();
+      controller.pauseExecutionTimeline();
+      for (int i = 0; i < TICKS_PER_CYCLE; i++) {
+        controller.tick();
+      }
+      sceneController.resetController(SCREEN);
+      removed.add(new WeakReference<>(controller));
+      sceneController.removeScreen(SCREEN);
+      return null;
+    });
+  }
+
+  /**
+   * @return the number of removed controllers after {@code from} that have not been collected.
+   */
+  private static int countReachable(ArrayList<WeakReference<GameController>> removed,
+      int from) {
+    int reachable = 0;
+    for (int i = from; i < removed.size(); i++) {
+      if (removed.get(i).get() != null) {
+        reachable++;
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * @return the heap in use after collecting until it stops shrinking.
+   */
+  private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      Thread.sleep(50);
+      long now = memory.getHeapMemoryUsage().getUsed();
+      if (now >= used) {
+        return now;
+      }
+      used = now;
+    }
+    return used;
+  }
+
+  /**
+   * Runs {@code task} on the JavaFX application thread and waits for its result.
+   */
+  private static <T> T onFxThread(FxTask<T> task) throws Exception {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Platform.runLater(() -> {
+      try {
+        result.complete(task.run());
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result.get();
+  }
+
+  private interface FxTask<T> {
+
+    T run() throws Exception;
+  }
+}
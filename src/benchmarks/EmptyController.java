@@ -0,0 +1,37 @@
+package benchmarks;
+
+import utilities.GameController;
+import utilities.metadata.WorldSettings;
+
+/**
+ * An empty level for the benchmarks to fill. Only the boundaries are loaded, and it never finishes.
+ * Extend it to override just the methods a benchmark needs.
+ *
+ * @author Russell Newton
+ **/
+class EmptyController extends GameController {
+
+  EmptyController() {
+  }
+
+  EmptyController(WorldSettings worldSettings) {
+    super(worldSettings);
+  }
+
+  @Override
+  protected void init() {
+  }
+
+  @Override
+  protected void execute() {
+  }
+
+  @Override
+  protected boolean isFinished() {
+    return false;
+  }
+
+  @Override
+  protected void end() {
+  }
+}
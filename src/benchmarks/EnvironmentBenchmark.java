@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.util.Random;
+import javafx.application.Platform;
+import utilities.ParallelWorldStepper;
+import utilities.VectorEnvironment;
+import utilities.metadata.AgentAction;
+
+/**
+ * Measures the throughput of a {@code VectorEnvironment} with random actions, for 1 thread and for
+ * one thread per core. Run from the project directory:<br><br> {@code java
+ * benchmarks.EnvironmentBenchmark [environments] [steps]}
+ *
+ * @author Russell Newton
+ **/
+public class EnvironmentBenchmark {
+
+  private static final int EPISODE_TICKS = 2000;
+  private static final int ACTION_HOLD_TICKS = 20;
+  private static final int WARM_UP_STEPS = 200;
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    Platform.startup(() -> {
+    });
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    System.out.println(String.format("%8s %8s %14s %18s", "envs", "threads", "ms/step",
+        "M env-steps/min"));
+    for (int threads : new int[]{1, cores}) {
+      VectorEnvironment environment = new VectorEnvironment(EmptyController::new, count,
+          EPISODE_TICKS, new ParallelWorldStepper(threads));
+      Random random = new Random(SEED);
+      int[] actions = new int[count];
+
+      for (int i = 0; i < WARM_UP_STEPS; i++) {
+        step(environment, actions, random, i);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < steps; i++) {
+        step(environment, actions, random, i);
+      }
+      long nanos = System.nanoTime() - start;
+      environment.close();
+
+      double envStepsPerMinute = (double) count * steps / (nanos / 6e10);
+      System.out.println(String.format("%8d %8d %14.3f %18.3f", count, threads,
+          nanos / 1e6 / steps, envStepsPerMinute / 1e6));
+      if (threads == cores) {
+        break;
+      }
+    }
+    Platform.exit();
+  }
+
+  private static void step(VectorEnvironment environment, int[] actions, Random random,
+      int step) {
+    if (step % ACTION_HOLD_TICKS == 0) {
+      for (int i = 0; i < actions.length; i++) {
+        actions[i] = random.nextInt(1 << AgentAction.values().length);
+      }
+    }
+    environment.step(actions);
+  }
+}
@@ -0,0 +1,145 @@
+package benchmarks;
+
+import static utilities.metadata.StaticUtilities.NETWORK_INTERPOLATION_DELAY;
+import static utilities.metadata.StaticUtilities.NETWORK_PREDICTION_TOLERANCE;
+
+import java.util.List;
+import java.util.Random;
+import javafx.application.Platform;
+import utilities.BotAgent;
+import utilities.NetworkClient;
+import utilities.NetworkServer;
+import utilities.Player;
+import utilities.metadata.AgentAction;
+
+/**
+ * Runs a headless {@code NetworkServer} and several headless {@code NetworkClients} in one process
+ * over the loopback interface, with every client's {@code Player} pressing random actions, then
+ * reports each client's bandwidth, input latency, and prediction corrections. Afterwards the
+ * {@code Players} let go of every action for {@code SETTLE_TICKS}, and each is compared with its
+ * {@code BotAgent} on the server. The exit status is 1 if a client was dropped or never connected,
+ * if more than {@code MAX_CORRECTION_RATE} of a client's acknowledged inputs were corrected, or if
+ * a settled {@code Player} is further than {@code NETWORK_PREDICTION_TOLERANCE} from the server's
+ * copy. The JavaFX toolkit is started first, because {@code StaticUtilities} reads the screen size.
+ * Run from the project directory:<br><br> {@code java benchmarks.NetworkSoakBenchmark [clients]
+ * [ticks] [port]}
+ *
+ * @author Russell Newton
+ **/
+public class NetworkSoakBenchmark {
+
+  private static final int ACTION_INTERVAL = 30;
+  private static final long SEED = 2019;
+  private static final int SETTLE_TICKS = 4 * NETWORK_INTERPOLATION_DELAY;
+  private static final double MAX_CORRECTION_RATE = 0.01;
+
+  public static void main(String[] args) throws Exception {
+    int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 6000;
+    int port = args.length > 2 ? Integer.parseInt(args[2]) : 47100;
+    Platform.startup(() -> {
+    });
+
+    SoakController server = new SoakController(null, port);
+    server.initializeHeadless();
+    SoakController[] clients = new SoakController[clientCount];
+    for (int i = 0; i < clientCount; i++) {
+      clients[i] = new SoakController("localhost", port);
+      clients[i].initializeHeadless();
+    }
+
+    Random random = new Random(SEED);
+    int actionMask = AgentAction.of(AgentAction.values());
+    long start = System.nanoTime();
+    for (int tick = 0; tick < ticks; tick++) {
+      for (SoakController client : clients) {
+        if (tick % ACTION_INTERVAL == 0) {
+          client.getPlayer().setActions(random.nextInt() & actionMask);
+        }
+        client.tick();
+      }
+      server.tick();
+    }
+    long nanos = System.nanoTime() - start;
+    for (int tick = 0; tick < SETTLE_TICKS; tick++) {
+      for (SoakController client : clients) {
+        client.getPlayer().setActions(0);
+        client.tick();
+      }
+      server.tick();
+    }
+
+    System.out.println(String.format("%d ticks of 1 server and %d clients, %.3f ms/tick", ticks,
+        clientCount, nanos / 1e6 / ticks));
+    NetworkServer serverSession = (NetworkServer) server.getNetworkSession();
+    System.out.print(serverSession);
+    boolean isHealthy = true;
+    if (serverSession.getClientCount() != clientCount) {
+      System.out.println("FAILED: " + (clientCount - serverSession.getClientCount())
+          + " clients were dropped");
+      isHealthy = false;
+    }
+    List<BotAgent> agents = serverSession.getClientAgents();
+    for (int i = 0; i < clientCount; i++) {
+      NetworkClient client = (NetworkClient) clients[i].getNetworkSession();
+      System.out.println(client);
+      if (!client.isConnected()) {
+        System.out.println("FAILED: client " + i + " never received a snapshot");
+        isHealthy = false;
+        continue;
+      }
+      if (client.getCorrectionRate() > MAX_CORRECTION_RATE) {
+        System.out.println(String.format("FAILED: client %d corrected %.1f%% of its inputs", i,
+            client.getCorrectionRate() * 100));
+        isHealthy = false;
+      }
+      if (i < agents.size()) {
+        float divergence = clients[i].getPlayer().getPosition()
+            .sub(agents.get(i).getPosition()).length();
+        if (divergence > NETWORK_PREDICTION_TOLERANCE) {
+          System.out.println(String.format("FAILED: client %d settled %.3f from the server", i,
+              divergence));
+          isHealthy = false;
+        }
+      }
+    }
+    for (SoakController client : clients) {
+      client.stop();
+    }
+    server.stop();
+    System.out.println(isHealthy ? "All clients matched the server" : "Soak test failed");
+    Platform.exit();
+    System.exit(isHealthy ? 0 : 1);
+  }
+
+  /**
+   * An empty level that hosts a server, or joins one if it is given a host.
+   */
+  private static class SoakController extends EmptyController {
+
+    private final String host;
+    private final int port;
+
+    private SoakController(String host, int port) {
+      this.host = host;
+      this.port = port;
+    }
+
+    private Player getPlayer() {
+      return player;
+    }
+
+    private void stop() {
+      stopNetworkSession();
+    }
+
+    @Override
+    protected void init() {
+      if (host == null) {
+        hostServer(port);
+      } else {
+        joinServer(host, port);
+      }
+    }
+  }
+}
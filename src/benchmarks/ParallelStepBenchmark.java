@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.Arrays;
+import javafx.application.Platform;
+import org.jbox2d.dynamics.World;
+import utilities.ParallelWorldStepper;
+import utilities.metadata.WorldSettings;
+
+/**
+ * Measures how stepping many independent copies of the built-in levels scales with the number of
+ * cores, and checks that every parallel run ends in exactly the same state as a sequential run.
+ * The JavaFX toolkit is started first, because the levels are loaded by a headless {@code
+ * GameController}. Run from the project directory:<br><br> {@code java
+ * benchmarks.ParallelStepBenchmark [worlds] [crates] [steps]}
+ *
+ * @author Russell Newton
+ **/
+public class ParallelStepBenchmark {
+
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int worldCount = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int crateCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int steps = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    int cores = Runtime.getRuntime().availableProcessors();
+    Platform.startup(() -> {
+    });
+
+    System.out.println(String.format("%d worlds, %d crates each, %d steps", worldCount,
+        crateCount, steps));
+    System.out.println(String.format("%8s %12s %10s %8s", "threads", "ms/step", "speedup",
+        "match"));
+
+    double[] sequential = null;
+    double baseline = 0;
+    for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1
+        : Math.min(threads * 2, cores)) {
+      World[] worlds = createWorlds(worldCount, crateCount);
+      ParallelWorldStepper stepper = new ParallelWorldStepper(threads);
+      for (World world : worlds) {
+        stepper.add(() -> BenchmarkLevels.step(world));
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < steps; i++) {
+        stepper.step();
+      }
+      double msPerStep = (System.nanoTime() - start) / 1e6 / steps;
+      stepper.shutdown();
+
+      double[] checksums = new double[worldCount];
+      for (int i = 0; i < worldCount; i++) {
+        checksums[i] = BenchmarkLevels.checksum(worlds[i]);
+      }
+      if (sequential == null) {
+        sequential = checksums;
+        baseline = msPerStep;
+      }
+
+      System.out.println(String.format("%8d %12.3f %10.2f %8s", threads, msPerStep,
+          baseline / msPerStep, Arrays.equals(sequential, checksums) ? "yes" : "NO"));
+    }
+    Platform.exit();
+  }
+
+  private static World[] createWorlds(int worldCount, int crateCount) throws Exception {
+    World[] worlds = new World[worldCount];
+    for (int i = 0; i < worldCount; i++) {
+      worlds[i] = BenchmarkLevels.createLevel(new WorldSettings());
+      BenchmarkLevels.addCrates(worlds[i], crateCount, SEED + i);
+    }
+    return worlds;
+  }
+}
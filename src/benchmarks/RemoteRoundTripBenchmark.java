@@ -0,0 +1,83 @@
+package benchmarks;
+
+import org.jbox2d.common.Vec2;
+import utilities.RemoteController;
+import utilities.RemoteControllerHost.RemotePolicy;
+import utilities.RemoteFrame;
+import utilities.metadata.AgentAction;
+
+/**
+ * Measures the round trip time of a {@code RemoteController} exchanging frames with a trivial
+ * policy in another process, then checks that a hung policy is stopped. Run from the project
+ * directory:<br><br> {@code java benchmarks.RemoteRoundTripBenchmark [frames]}
+ *
+ * @author Russell Newton
+ **/
+public class RemoteRoundTripBenchmark {
+
+  private static final int WARM_UP_FRAMES = 20000;
+
+  public static void main(String[] args) throws Exception {
+    int frames = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    Vec2 position = new Vec2(48, 75);
+    Vec2 velocity = new Vec2();
+
+    RemoteController controller = new RemoteController(WalkWhenGroundedPolicy.class);
+    while (!controller.isReady() && !controller.hasFailed()) {
+      controller.exchange(position, velocity, 0, true);
+      Thread.sleep(1);
+    }
+    for (int i = 0; i < WARM_UP_FRAMES; i++) {
+      controller.exchange(position, velocity, 0, true);
+    }
+    controller.getRoundTripLatency().clear();
+
+    int mismatches = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < frames; i++) {
+      position.x = i;
+      boolean isGrounded = (i & 1) == 0;
+      int expected = isGrounded ? AgentAction.WALK_RIGHT.getBit() : 0;
+      if (controller.exchange(position, velocity, 0, isGrounded) != expected) {
+        mismatches++;
+      }
+    }
+    long nanos = System.nanoTime() - start;
+    System.out.println(String.format("%d frames, %.3f us/frame, %d late or wrong", frames,
+        nanos / 1e3 / frames, mismatches));
+    System.out.println("Round trip " + controller.getRoundTripLatency());
+    controller.close();
+
+    RemoteController hung = new RemoteController(HungPolicy.class);
+    long hungStart = System.nanoTime();
+    while (!hung.hasFailed()) {
+      hung.exchange(position, velocity, 0, true);
+    }
+    System.out.println(String.format("Hung policy stopped after %.1f ms",
+        (System.nanoTime() - hungStart) / 1e6));
+  }
+
+  /**
+   * Walks right only while grounded, so every answer depends on its frame.
+   */
+  public static class WalkWhenGroundedPolicy implements RemotePolicy {
+
+    @Override
+    public int act(RemoteFrame frame) {
+      return frame.isGrounded() ? AgentAction.WALK_RIGHT.getBit() : 0;
+    }
+  }
+
+  /**
+   * Never answers after its first frame.
+   */
+  public static class HungPolicy implements RemotePolicy {
+
+    @Override
+    public int act(RemoteFrame frame) {
+      while (true) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
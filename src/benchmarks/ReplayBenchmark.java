@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.nio.file.Paths;
+import javafx.application.Platform;
+import utilities.GameController;
+import utilities.InputRecording;
+
+/**
+ * Replays an {@code InputRecording} in a fresh headless copy of the controller it was recorded in,
+ * as fast as possible, and reports the time per execution cycle. The replay must end in the exact
+ * state it was recorded in, so a recording doubles as a regression test: the exit status is 1 if
+ * any run ends somewhere else. Record a session with {@code java utilities.Window
+ * --record=<file>}, then run from the project directory:<br><br> {@code java
+ * benchmarks.ReplayBenchmark <file> [runs]}
+ *
+ * @author Russell Newton
+ **/
+public class ReplayBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    InputRecording recording = InputRecording.load(Paths.get(args[0]));
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    Platform.startup(() -> {
+    });
+    System.out.println(recording);
+
+    boolean allMatched = true;
+    System.out.println(String.format("%8s %12s %10s", "run", "ms/tick", "matches"));
+    for (int run = 0; run < runs; run++) {
+      GameController controller = (GameController) Class
+          .forName(recording.getControllerClassName()).getDeclaredConstructor().newInstance();
+      controller.initializeHeadless();
+      controller.startReplay(recording);
+
+      long start = System.nanoTime();
+      while (controller.getInputReplay() != null && controller.tick()) {
+      }
+      long nanos = System.nanoTime() - start;
+      boolean matched = controller.matchesReplay(recording);
+      allMatched &= matched;
+      System.out.println(String.format("%8d %12.4f %10s", run,
+          nanos / 1e6 / recording.getTickCount(), matched));
+    }
+    Platform.exit();
+    System.exit(allMatched ? 0 : 1);
+  }
+}
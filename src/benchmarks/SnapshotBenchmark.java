@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javafx.application.Platform;
+import org.jbox2d.common.Vec2;
+import utilities.BotAgent;
+import utilities.GameController;
+import utilities.WorldSnapshot;
+
+/**
+ * Measures saving and restoring a {@code WorldSnapshot} of a headless level against the number of
+ * {@code BotAgents} in it, along with the bytes allocated per restore. Each level is also run
+ * forward, reset to its start, and run forward again, to report how far the second run ends from
+ * the first. Run from the project directory:<br><br> {@code java benchmarks.SnapshotBenchmark
+ * [repeats]}
+ *
+ * @author Russell Newton
+ **/
+public class SnapshotBenchmark {
+
+  private static final int[] AGENT_COUNTS = {0, 10, 100, 1000};
+  private static final int RUN_TICKS = 1000;
+  private static final int JUMP_INTERVAL = 150;
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    Platform.startup(() -> {
+    });
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    System.out.println(String.format("%8s %12s %12s %14s %12s", "agents", "us/save",
+        "us/restore", "bytes/restore", "drift"));
+    for (int agentCount : AGENT_COUNTS) {
+      GameController controller = new EmptyController();
+      controller.initializeHeadless();
+      Random random = new Random(SEED);
+      for (int i = 0; i < agentCount; i++) {
+        controller.addBot(BotAgent.wanderPolicy(JUMP_INTERVAL + random.nextInt(JUMP_INTERVAL)),
+            5 + random.nextFloat() * 155, 20 + random.nextFloat() * 60);
+      }
+      WorldSnapshot start = new WorldSnapshot();
+      controller.saveSnapshot(start);
+
+      float[] firstRun = runAndSample(controller);
+      controller.restoreSnapshot(start);
+      float[] secondRun = runAndSample(controller);
+      float drift = 0;
+      for (int i = 0; i < firstRun.length; i++) {
+        drift = Math.max(drift, Math.abs(firstRun[i] - secondRun[i]));
+      }
+
+      WorldSnapshot checkpoint = new WorldSnapshot();
+      long saveStart = System.nanoTime();
+      for (int i = 0; i < repeats; i++) {
+        controller.saveSnapshot(checkpoint);
+      }
+      long saveNanos = System.nanoTime() - saveStart;
+
+      long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+      long restoreStart = System.nanoTime();
+      for (int i = 0; i < repeats; i++) {
+        controller.restoreSnapshot(checkpoint);
+      }
+      long restoreNanos = System.nanoTime() - restoreStart;
+      long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+
+      System.out.println(String.format("%8d %12.3f %12.3f %14d %12.6f", agentCount,
+          saveNanos / 1e3 / repeats, restoreNanos / 1e3 / repeats, allocated / repeats, drift));
+    }
+    Platform.exit();
+  }
+
+  /**
+   * Runs {@code RUN_TICKS} cycles and returns the position of every bot.
+   */
+  private static float[] runAndSample(GameController controller) {
+    for (int i = 0; i < RUN_TICKS; i++) {
+      controller.tick();
+    }
+    float[] positions = new float[controller.getBots().size() * 2];
+    for (int i = 0; i < controller.getBots().size(); i++) {
+      Vec2 position = controller.getBots().get(i).getPosition();
+      positions[i * 2] = position.x;
+      positions[i * 2 + 1] = position.y;
+    }
+    return positions;
+  }
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Random;
+import javafx.application.Platform;
+import org.jbox2d.dynamics.BodyType;
+import utilities.Obstacle;
+import utilities.metadata.StaticUtilities;
+
+/**
+ * Measures a headless level that spawns falling blocks every execution cycle and removes each one
+ * a fixed number of cycles later, once creating and destroying every block, and once through the
+ * {@code ObstaclePool}. Reports the time and bytes allocated per cycle, and the pool's hit rate and
+ * high-water marks. Run from the project directory:<br><br> {@code java
+ * benchmarks.SpawnBenchmark [ticks] [spawns per tick] [lifetime]}
+ *
+ * @author Russell Newton
+ **/
+public class SpawnBenchmark {
+
+  private static final float[] BLOCK_SIZES = {1, 2, 3};
+  private static final int WARM_UP_TICKS = 500;
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int spawnsPerTick = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    int lifetime = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    Platform.startup(() -> {
+    });
+
+    System.out.println(String.format("%8s %12s %14s", "pooled", "us/tick", "bytes/tick"));
+    for (boolean pooled : new boolean[]{false, true}) {
+      SpawnController controller = new SpawnController(pooled, spawnsPerTick, lifetime);
+      controller.initializeHeadless();
+      for (int i = 0; i < WARM_UP_TICKS; i++) {
+        controller.tick();
+      }
+
+      com.sun.management.ThreadMXBean threads =
+          (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+      long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+      long start = System.nanoTime();
+      for (int i = 0; i < ticks; i++) {
+        controller.tick();
+      }
+      long nanos = System.nanoTime() - start;
+      long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+      System.out.println(String.format("%8s %12.3f %14d", pooled, nanos / 1e3 / ticks,
+          allocated / ticks));
+      if (pooled) {
+        System.out.println(controller.getObstaclePool());
+      }
+    }
+    Platform.exit();
+  }
+
+  /**
+   * Drops blocks of a few sizes from random places above an empty level.
+   */
+  private static class SpawnController extends EmptyController {
+
+    private final boolean pooled;
+    private final int spawnsPerTick;
+    private final int lifetime;
+    private final Random random = new Random(SEED);
+    private final ArrayDeque<Obstacle> blocks = new ArrayDeque<>();
+    private final ArrayDeque<Long> spawnTicks = new ArrayDeque<>();
+    private long tick = 0;
+
+    private SpawnController(boolean pooled, int spawnsPerTick, int lifetime) {
+      this.pooled = pooled;
+      this.spawnsPerTick = spawnsPerTick;
+      this.lifetime = lifetime;
+    }
+
+    @Override
+    protected void execute() {
+      while (!spawnTicks.isEmpty() && tick - spawnTicks.peekFirst() >= lifetime) {
+        spawnTicks.pollFirst();
+        Obstacle block = blocks.pollFirst();
+        if (pooled) {
+          releaseObstacle(block);
+        } else {
+          block.deleteObstacle();
+        }
+      }
+      for (int i = 0; i < spawnsPerTick; i++) {
+        float size = BLOCK_SIZES[random.nextInt(BLOCK_SIZES.length)];
+        float x = 10 + random.nextFloat() * 140;
+        Obstacle block;
+        if (pooled) {
+          block = spawnObstacle(x, 90, size, size);
+        } else {
+          block = new Obstacle(this, x, 90, size, size, 0, StaticUtilities.DEFAULT_OBSTACLE_FILL,
+              BodyType.DYNAMIC);
+          block.initialize();
+        }
+        blocks.addLast(block);
+        spawnTicks.addLast(tick);
+      }
+      tick++;
+    }
+  }
+}
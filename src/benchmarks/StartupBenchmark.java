@@ -0,0 +1,73 @@
+package benchmarks;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import utilities.GameController;
+import utilities.SceneController;
+
+/**
+ * Compares the time to build each built-in screen from its .fxml file against building it in code
+ * with {@code GameController.createScreen()}. The first build of each kind is reported on its own,
+ * since it includes class loading, followed by the mean of the rest. The first screen's first
+ * .fxml build also loads {@code FXMLLoader} itself, so it is by far the slowest. Screens are
+ * disposed after they are built. Run from the project directory, with {@code src} on the
+ * classpath:<br><br>
+ * {@code java benchmarks.StartupBenchmark [repeats]}
+ *
+ * @author Russell Newton
+ **/
+public class StartupBenchmark {
+
+  private static final String[] SCREENS = {"BasicGameController", "TestGameController"};
+
+  public static void main(String[] args) throws Exception {
+    int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    Platform.startup(() -> {
+    });
+
+    System.out.println(String.format("%-22s %6s %12s %12s", "screen", "path", "first ms",
+        "mean ms"));
+    for (String screen : SCREENS) {
+      String fxmlPath = "/assets/fxml/" + screen + ".fxml";
+      double firstFxml = loadFromFxml(fxmlPath);
+      double firstCode = loadInCode(screen);
+
+      double fxmlTotal = 0;
+      double codeTotal = 0;
+      for (int i = 0; i < repeats; i++) {
+        fxmlTotal += loadFromFxml(fxmlPath);
+        codeTotal += loadInCode(screen);
+      }
+      System.out.println(String.format("%-22s %6s %12.3f %12.3f", screen, "fxml", firstFxml,
+          fxmlTotal / repeats));
+      System.out.println(String.format("%-22s %6s %12.3f %12.3f", screen, "code", firstCode,
+          codeTotal / repeats));
+    }
+    Platform.exit();
+  }
+
+  /**
+   * @return the milliseconds taken to load and initialize a screen from a .fxml file.
+   */
+  private static double loadFromFxml(String fxmlPath) throws Exception {
+    long start = System.nanoTime();
+    FXMLLoader fxmlLoader = new FXMLLoader(StartupBenchmark.class.getResource(fxmlPath));
+    fxmlLoader.load();
+    GameController controller = fxmlLoader.getController();
+    double millis = (System.nanoTime() - start) / 1e6;
+    controller.dispose();
+    return millis;
+  }
+
+  /**
+   * @return the milliseconds taken to create and initialize a screen in code.
+   */
+  private static double loadInCode(String className) {
+    long start = System.nanoTime();
+    GameController controller = SceneController.factoryOf(className).get();
+    controller.createScreen();
+    double millis = (System.nanoTime() - start) / 1e6;
+    controller.dispose();
+    return millis;
+  }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import javafx.application.Platform;
+import org.jbox2d.common.Vec2;
+import utilities.BotAgent;
+import utilities.GameController;
+import utilities.StateReplay;
+
+/**
+ * Records the state of a headless level full of wandering {@code BotAgents} with a {@code
+ * StateRecorder}, reporting the cost per execution cycle and the file size, then measures random
+ * seeks through the recording with a {@code StateReplay}. Each seek is checked against the {@code
+ * Player} position sampled while recording. The default is 30 minutes of play. Run from the
+ * project directory:<br><br> {@code java benchmarks.StateSeekBenchmark [ticks] [bots] [seeks]}
+ *
+ * @author Russell Newton
+ **/
+public class StateSeekBenchmark {
+
+  private static final int SAMPLE_INTERVAL = 997;
+  private static final int JUMP_INTERVAL = 150;
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 360000;
+    int botCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    int seeks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+    Platform.startup(() -> {
+    });
+
+    GameController controller = new EmptyController();
+    controller.initializeHeadless();
+    Random random = new Random(SEED);
+    for (int i = 0; i < botCount; i++) {
+      controller.addBot(BotAgent.wanderPolicy(JUMP_INTERVAL + random.nextInt(JUMP_INTERVAL)),
+          5 + random.nextFloat() * 155, 20 + random.nextFloat() * 60);
+    }
+
+    Path path = Files.createTempFile("session", ".state");
+    path.toFile().deleteOnExit();
+    float[] sampledX = new float[ticks / SAMPLE_INTERVAL + 1];
+    float[] sampledY = new float[sampledX.length];
+    long untimed = 0;
+    for (int i = 0; i < ticks; i++) {
+      long start = System.nanoTime();
+      controller.tick();
+      untimed += System.nanoTime() - start;
+    }
+
+    controller = new EmptyController();
+    controller.initializeHeadless();
+    random = new Random(SEED);
+    for (int i = 0; i < botCount; i++) {
+      controller.addBot(BotAgent.wanderPolicy(JUMP_INTERVAL + random.nextInt(JUMP_INTERVAL)),
+          5 + random.nextFloat() * 155, 20 + random.nextFloat() * 60);
+    }
+    controller.startStateRecording(path);
+    long recorded = 0;
+    for (int i = 0; i < ticks; i++) {
+      long start = System.nanoTime();
+      controller.tick();
+      recorded += System.nanoTime() - start;
+      if (i % SAMPLE_INTERVAL == 0) {
+        sampledX[i / SAMPLE_INTERVAL] = controller.getBots().get(0).getPosition().x;
+        sampledY[i / SAMPLE_INTERVAL] = controller.getBots().get(0).getPosition().y;
+      }
+    }
+    System.out.println(controller.getStateRecorder());
+    controller.stopStateRecording();
+    System.out.println(String.format("%.3f us/tick without recording, %.3f us/tick with",
+        untimed / 1e3 / ticks, recorded / 1e3 / ticks));
+
+    long openStart = System.nanoTime();
+    StateReplay replay = new StateReplay(path);
+    System.out.println(String.format("%s opened in %.3f ms", replay,
+        (System.nanoTime() - openStart) / 1e6));
+
+    Vec2 position = new Vec2();
+    int mismatches = 0;
+    long longestSeek = 0;
+    long seekStart = System.nanoTime();
+    for (int i = 0; i < seeks; i++) {
+      int sample = random.nextInt(sampledX.length);
+      long start = System.nanoTime();
+      replay.seek(sample * SAMPLE_INTERVAL);
+      longestSeek = Math.max(longestSeek, System.nanoTime() - start);
+      replay.getPosition(replay.getCount() - 1 - botCount, position);
+      if (Math.abs(position.x - sampledX[sample]) > 0.01f
+          || Math.abs(position.y - sampledY[sample]) > 0.01f) {
+        mismatches++;
+      }
+    }
+    System.out.println(String.format("%d random seeks, mean %.3f ms, max %.3f ms, %d wrong",
+        seeks, (System.nanoTime() - seekStart) / 1e6 / seeks, longestSeek / 1e6, mismatches));
+    replay.close();
+    Platform.exit();
+  }
+}
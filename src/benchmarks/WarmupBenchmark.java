@@ -0,0 +1,64 @@
+package benchmarks;
+
+import static utilities.metadata.StaticUtilities.PHYSICS_SUB_STEPS;
+
+import java.util.Arrays;
+import javafx.application.Platform;
+import utilities.GameController;
+import utilities.SceneController;
+
+/**
+ * Times the first frames of a built-in screen, with or without a warm-up run of a throwaway copy
+ * first. Each frame is the {@code PHYSICS_SUB_STEPS} execution cycles the timeline runs per
+ * {@code FRAME_INTERVAL}. The JIT keeps what it compiled for the life of the JVM, so run it once
+ * per case in a fresh JVM: once with 0 warm-up ticks and once with some. Run from the project
+ * directory:<br><br> {@code java benchmarks.WarmupBenchmark [warm-up ticks] [screen]}
+ *
+ * @author Russell Newton
+ **/
+public class WarmupBenchmark {
+
+  private static final int TIMED_FRAMES = 100;
+
+  public static void main(String[] args) {
+    int warmUpTicks = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+    String screen = args.length > 1 ? args[1] : "TestGameController";
+    Platform.startup(() -> {
+    });
+
+    long warmUpStart = System.nanoTime();
+    if (warmUpTicks > 0) {
+      GameController copy = SceneController.factoryOf(screen).get();
+      copy.createScreen();
+      copy.warmUp(warmUpTicks);
+    }
+    double warmUpMillis = (System.nanoTime() - warmUpStart) / 1e6;
+
+    GameController controller = SceneController.factoryOf(screen).get();
+    controller.createScreen();
+    long[] frameNanos = new long[TIMED_FRAMES];
+    for (int i = 0; i < TIMED_FRAMES; i++) {
+      long start = System.nanoTime();
+      for (int subStep = 0; subStep < PHYSICS_SUB_STEPS; subStep++) {
+        controller.tick();
+      }
+      frameNanos[i] = System.nanoTime() - start;
+    }
+    controller.dispose();
+
+    long total = 0;
+    for (long nanos : frameNanos) {
+      total += nanos;
+    }
+    long first = frameNanos[0];
+    Arrays.sort(frameNanos);
+    System.out.println(String.format("%s, %d warm-up ticks in %.1f ms", screen, warmUpTicks,
+        warmUpMillis));
+    System.out.println(String.format("First %d frames of %d cycles: total %.3f ms, first %.3f ms, "
+            + "mean %.3f ms, p50 %.3f ms, p90 %.3f ms, max %.3f ms", TIMED_FRAMES,
+        PHYSICS_SUB_STEPS, total / 1e6, first / 1e6, total / 1e6 / TIMED_FRAMES,
+        frameNanos[TIMED_FRAMES / 2] / 1e6,
+        frameNanos[TIMED_FRAMES * 9 / 10] / 1e6, frameNanos[TIMED_FRAMES - 1] / 1e6));
+    Platform.exit();
+  }
+}
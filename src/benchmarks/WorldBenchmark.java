@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import javafx.application.Platform;
+import org.jbox2d.dynamics.World;
+import utilities.metadata.WorldSettings;
+
+/**
+ * Compares {@code WorldSettings} on the built-in levels with 100, 1,000, and 10,000 dynamic
+ * crates. The JavaFX toolkit is started first, because the levels are loaded by a headless {@code
+ * GameController}. Run from the project directory:<br><br> {@code java benchmarks.WorldBenchmark
+ * [steps]}
+ *
+ * @author Russell Newton
+ **/
+public class WorldBenchmark {
+
+  private static final int[] BODY_COUNTS = {100, 1000, 10000};
+  private static final int WARM_UP_STEPS = 100;
+  private static final long SEED = 2019;
+
+  public static void main(String[] args) throws Exception {
+    int steps = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+    Platform.startup(() -> {
+    });
+
+    Map<String, WorldSettings> configurations = new LinkedHashMap<>();
+    configurations.put("default", new WorldSettings());
+    configurations.put("large pool", new WorldSettings().setPoolCapacities(1000, 50, 1000));
+    configurations.put("no sleep", new WorldSettings().setAllowSleep(false));
+    configurations.put("no continuous", new WorldSettings().setContinuousPhysics(false));
+    configurations.put("no warm start", new WorldSettings().setWarmStarting(false));
+
+    System.out.println(String.format("%-16s %8s %12s %12s", "settings", "bodies", "build ms",
+        "ms/step"));
+    for (int bodyCount : BODY_COUNTS) {
+      for (Entry<String, WorldSettings> configuration : configurations.entrySet()) {
+        long buildStart = System.nanoTime();
+        World world = BenchmarkLevels.createLevel(configuration.getValue());
+        BenchmarkLevels.addCrates(world, bodyCount, SEED);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        for (int i = 0; i < WARM_UP_STEPS; i++) {
+          BenchmarkLevels.step(world);
+        }
+        long stepStart = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+          BenchmarkLevels.step(world);
+        }
+        long stepNanos = System.nanoTime() - stepStart;
+
+        System.out.println(String.format("%-16s %8d %12.2f %12.3f", configuration.getKey(),
+            bodyCount, buildNanos / 1e6, stepNanos / 1e6 / steps));
+      }
+    }
+    Platform.exit();
+  }
+}
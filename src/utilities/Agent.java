@@ -0,0 +1,425 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_ANGLE;
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_FRICTION;
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_MASS;
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_RESTITUTION;
+import static utilities.metadata.StaticUtilities.FLIP_HORIZONTAL;
+import static utilities.metadata.StaticUtilities.JUMP_COUNT;
+import static utilities.metadata.StaticUtilities.JUMP_VECTOR;
+import static utilities.metadata.StaticUtilities.RUN_VECTOR;
+import static utilities.metadata.StaticUtilities.STOP_HORIZONTAL_MOTION_ON_KEY_RELEASE;
+import static utilities.metadata.StaticUtilities.WALK_VECTOR;
+
+import javafx.scene.paint.Paint;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.Fixture;
+import utilities.metadata.AgentAction;
+import utilities.metadata.CollisionLayer;
+import utilities.metadata.UserData;
+
+/**
+ * {@code Agents} are the bodies that walk, run, and jump. They share the {@code Player's} physics
+ * setup, but are driven by a set of {@code AgentActions} instead of by the keyboard. Subclasses
+ * choose the actions in {@code updateActions()}, which is run once per update.<br><br> An update
+ * does not allocate, so thousands of {@code Agents} can run in one {@code World}.
+ *
+ * @author Russell Newton
+ * @see Player
+ * @see BotAgent
+ **/
+public abstract class Agent extends Obstacle {
+
+  private final int wallLayers = CollisionLayer.PLAYER_SENSOR.getMaskBits();
+  private final Vec2 impulse = new Vec2();
+  private final Vec2 impulsePoint = new Vec2();
+  private final Vec2 cappedVelocity = new Vec2();
+  private int jumpCount = 0;
+  private boolean isRunning = false;
+  private boolean isJumping = false;
+  private Fixture bottomSensor;
+  private Fixture leftSensor;
+  private Fixture rightSensor;
+  private boolean isGrounded = false;
+  private int actions = 0;
+  private int previousActions = 0;
+  private int pressedActions = 0;
+  private int releasedActions = 0;
+  private int motionFlags = 0;
+  private int previousMotionFlags = 0;
+
+  /**
+   * Creates and initializes an {@code Agent}.
+   *
+   * @param controller the controller this {@code Agent} belongs to.
+   * @param collisionLayer the {@code CollisionLayer} of the {@code Agent's} body.
+   */
+  protected Agent(GameController controller, float startX, float startY, float width,
+      float height, Paint fill, CollisionLayer collisionLayer) {
+    super(controller, startX, startY, width, height, DEFAULT_PLAYER_ANGLE, fill, BodyType.DYNAMIC);
+    this.collisionLayer = collisionLayer;
+    initialize();
+  }
+
+  @Override
+  public void update() {
+    super.update();
+    previousMotionFlags = motionFlags;
+    updateContactStates();
+    updateActions();
+    applyActions();
+
+    Vec2 velocity = body.getLinearVelocity();
+    int flags = motionFlags;
+    if (velocity.x > 0) {
+      flags = MotionState.MOVING_RIGHT.applyTo(flags, true);
+    }
+    if (velocity.x < 0) {
+      flags = MotionState.MOVING_LEFT.applyTo(flags, true);
+    }
+    if (isJumping && velocity.y > 0) {
+      flags = MotionState.JUMPING.applyTo(flags, true);
+    }
+    if (velocity.y < 0) {
+      flags = MotionState.FALLING.applyTo(flags, true);
+    }
+    if (velocity.x == 0 && velocity.y == 0) {
+      flags = MotionState.STANDING.applyTo(flags, true);
+    }
+    motionFlags = flags;
+
+    if (!controller.isHeadless()) {
+      if (is(MotionState.MOVING_RIGHT)) {
+        faceRight();
+      } else if (is(MotionState.MOVING_LEFT)) {
+        faceLeft();
+      }
+    }
+  }
+
+  /**
+   * Choose this update's actions with {@code setActions()}, {@code press()}, and {@code
+   * release()}. This is run once per update, after the contact states are read.
+   */
+  protected abstract void updateActions();
+
+  /**
+   * Replace every held action.
+   *
+   * @param actions the {@code AgentAction} bits to hold.
+   */
+  public void setActions(int actions) {
+    this.actions = actions;
+  }
+
+  /**
+   * Start holding an action. An action pressed and released before the next update still starts
+   * and stops once.
+   */
+  public void press(AgentAction action) {
+    actions |= action.getBit();
+    pressedActions |= action.getBit();
+  }
+
+  /**
+   * Stop holding an action.
+   */
+  public void release(AgentAction action) {
+    actions &= ~action.getBit();
+    releasedActions |= action.getBit();
+  }
+
+  /**
+   * @return the held {@code AgentAction} bits.
+   */
+  public int getActions() {
+    return actions;
+  }
+
+  /**
+   * Compares the held actions with those from the last update and runs what they do. An action
+   * runs once when it starts, every update while it is held, and once when it stops.
+   */
+  private void applyActions() {
+    int started = (actions & ~previousActions) | pressedActions;
+    int stopped = (~actions & previousActions) | releasedActions;
+    previousActions = actions;
+    pressedActions = 0;
+    releasedActions = 0;
+
+    isRunning = AgentAction.RUN.isIn(actions);
+
+    if (AgentAction.JUMP.isIn(started)) {
+      jump();
+    }
+    if (AgentAction.JUMP.isIn(actions)) {
+      isJumping = true;
+    }
+    if (AgentAction.JUMP.isIn(stopped)) {
+      Vec2 bodyVelocity = body.getLinearVelocity();
+      cappedVelocity.set(bodyVelocity.x, Math.min(10, bodyVelocity.y));
+      body.setLinearVelocity(cappedVelocity);
+      isJumping = false;
+    }
+
+    if (AgentAction.WALK_RIGHT.isIn(started)) {
+      applyImpulse(WALK_VECTOR.x, WALK_VECTOR.y);
+    }
+    if (AgentAction.WALK_RIGHT.isIn(actions)) {
+      walk(true);
+    }
+    if (AgentAction.WALK_RIGHT.isIn(stopped)) {
+      stopWalking();
+    }
+
+    if (AgentAction.WALK_LEFT.isIn(started)) {
+      applyImpulse(-WALK_VECTOR.x, -WALK_VECTOR.y);
+    }
+    if (AgentAction.WALK_LEFT.isIn(actions)) {
+      walk(false);
+    }
+    if (AgentAction.WALK_LEFT.isIn(stopped)) {
+      stopWalking();
+    }
+  }
+
+  /**
+   * Make the {@code Agent} jump. You can continue to jump as long as you have not exceeded {@code
+   * jumpCount}.
+   */
+  private void jump() {
+    if (jumpCount > 0) {
+      body.getLinearVelocity().y = 0;
+      applyImpulse(JUMP_VECTOR.x, JUMP_VECTOR.y);
+      jumpCount--;
+    }
+  }
+
+  /**
+   * Make the {@code Agent} walk. If {@code isRunning} is true, this method will make the {@code
+   * Agent} run.
+   *
+   * @param isRight whether or not the direction of the walking is to the right.
+   */
+  private void walk(boolean isRight) {
+    if (isRunning) {
+      if (isRight && !is(MotionState.ON_WALL_RIGHT)) {
+        body.getLinearVelocity().x = RUN_VECTOR.x;
+      } else if (!isRight && !is(MotionState.ON_WALL_LEFT)) {
+        body.getLinearVelocity().x = -RUN_VECTOR.x;
+      }
+    } else {
+      if (isRight && !is(MotionState.ON_WALL_RIGHT)) {
+        body.getLinearVelocity().x = WALK_VECTOR.x;
+      } else if (!isRight && !is(MotionState.ON_WALL_LEFT)) {
+        body.getLinearVelocity().x = -WALK_VECTOR.x;
+      }
+    }
+  }
+
+  private void stopWalking() {
+    if (STOP_HORIZONTAL_MOTION_ON_KEY_RELEASE) {
+      body.getLinearVelocity().x = 0;
+    }
+  }
+
+  /**
+   * Applies an impulse at the center of mass, reusing the same vectors every time.
+   */
+  private void applyImpulse(float x, float y) {
+    impulse.set(x, y);
+    body.getWorldPointToOut(centerOfMass, impulsePoint);
+    body.applyLinearImpulse(impulse, impulsePoint);
+  }
+
+  /**
+   * Reads the sensor contacts from the {@code ContactIndex}. The jump counter is reset when the
+   * bottom sensor lands on something, and the on wall states follow the side sensors.
+   */
+  private void updateContactStates() {
+    ContactIndex contactIndex = controller.contactListener.getContactIndex();
+
+    boolean wasGrounded = isGrounded;
+    isGrounded = contactIndex.isTouching(bottomSensor);
+    if (isGrounded && !wasGrounded) {
+      resetJumpCount();
+    }
+
+    int flags = motionFlags;
+    boolean onWallRight = contactIndex.isTouching(rightSensor, wallLayers);
+    if (onWallRight != is(MotionState.ON_WALL_RIGHT)) {
+      flags = MotionState.ON_WALL_RIGHT.applyTo(flags, onWallRight);
+    }
+    boolean onWallLeft = contactIndex.isTouching(leftSensor, wallLayers);
+    if (onWallLeft != is(MotionState.ON_WALL_LEFT)) {
+      flags = MotionState.ON_WALL_LEFT.applyTo(flags, onWallLeft);
+    }
+    motionFlags = flags;
+  }
+
+  /**
+   * Resets the jump counter.
+   */
+  private void resetJumpCount() {
+    jumpCount = JUMP_COUNT;
+  }
+
+  /**
+   * Assumes the initial {@code screenMask} orientation is right.
+   */
+  public void faceRight() {
+    screenMask.getTransforms().remove(FLIP_HORIZONTAL);
+  }
+
+  public void faceLeft() {
+    if (!screenMask.getTransforms().contains(FLIP_HORIZONTAL)) {
+      screenMask.getTransforms().add(FLIP_HORIZONTAL);
+    }
+  }
+
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  public boolean isJumping() {
+    return isJumping;
+  }
+
+  /**
+   * @return whether or not the bottom sensor is touching anything.
+   */
+  public boolean isGrounded() {
+    return isGrounded;
+  }
+
+  /**
+   * @return whether or not this {@code Agent} is in {@code state}.
+   */
+  public boolean is(MotionState state) {
+    return (motionFlags & state.getBit()) != 0;
+  }
+
+  /**
+   * @return whether or not this {@code Agent} entered {@code state} during the last update.
+   */
+  public boolean isRisingEdge(MotionState state) {
+    return (motionFlags & ~previousMotionFlags & state.getBit()) != 0;
+  }
+
+  /**
+   * @return whether or not this {@code Agent} left {@code state} during the last update.
+   */
+  public boolean isFallingEdge(MotionState state) {
+    return (~motionFlags & previousMotionFlags & state.getBit()) != 0;
+  }
+
+  /**
+   * @return every motion state of this {@code Agent}, one bit per {@code MotionState}.
+   */
+  public int getMotionFlags() {
+    return motionFlags;
+  }
+
+  @Override
+  protected int getStateSize() {
+    return super.getStateSize() + 10;
+  }
+
+  @Override
+  protected void saveState(double[] state, int offset) {
+    super.saveState(state, offset);
+    offset += super.getStateSize();
+    state[offset] = jumpCount;
+    state[offset + 1] = isRunning ? 1 : 0;
+    state[offset + 2] = isJumping ? 1 : 0;
+    state[offset + 3] = isGrounded ? 1 : 0;
+    state[offset + 4] = actions;
+    state[offset + 5] = previousActions;
+    state[offset + 6] = pressedActions;
+    state[offset + 7] = releasedActions;
+    state[offset + 8] = motionFlags;
+    state[offset + 9] = previousMotionFlags;
+  }
+
+  @Override
+  protected void restoreState(double[] state, int offset) {
+    super.restoreState(state, offset);
+    offset += super.getStateSize();
+    jumpCount = (int) state[offset];
+    isRunning = state[offset + 1] != 0;
+    isJumping = state[offset + 2] != 0;
+    isGrounded = state[offset + 3] != 0;
+    actions = (int) state[offset + 4];
+    previousActions = (int) state[offset + 5];
+    pressedActions = (int) state[offset + 6];
+    releasedActions = (int) state[offset + 7];
+    motionFlags = (int) state[offset + 8];
+    previousMotionFlags = (int) state[offset + 9];
+  }
+
+  @Override
+  protected void setFixtureData() {
+    Fixture primaryFixture = body.getFixtureList();
+    primaryFixture.setDensity(DEFAULT_PLAYER_MASS / (width * height));
+    primaryFixture.setUserData(new UserData().addUserData("obstacleType", "default"));
+    primaryFixture.setFriction(DEFAULT_PLAYER_FRICTION);
+    primaryFixture.setRestitution(DEFAULT_PLAYER_RESTITUTION);
+    body.resetMassData();
+    body.setFixedRotation(true);
+
+    createSideSensors("playerSensor", CollisionLayer.PLAYER_SENSOR);
+    bottomSensor = getTaggedFixture("bottom");
+    leftSensor = getTaggedFixture("left");
+    rightSensor = getTaggedFixture("right");
+  }
+
+  /**
+   * The motion states of an {@code Agent}. Each state is one bit of the {@code Agent's} motion
+   * flags. Setting a state clears the states it excludes in the same write.
+   */
+  public enum MotionState {
+    STANDING,
+    MOVING_RIGHT,
+    MOVING_LEFT,
+    JUMPING,
+    FALLING,
+    ON_WALL_RIGHT,
+    ON_WALL_LEFT;
+
+    static {
+      STANDING.excludes(MOVING_RIGHT, MOVING_LEFT, JUMPING, FALLING);
+      MOVING_RIGHT.excludes(MOVING_LEFT, STANDING);
+      MOVING_LEFT.excludes(MOVING_RIGHT, STANDING);
+      JUMPING.excludes(FALLING, STANDING);
+      FALLING.excludes(JUMPING, STANDING);
+      ON_WALL_RIGHT.excludes(MOVING_RIGHT);
+      ON_WALL_LEFT.excludes(MOVING_LEFT);
+    }
+
+    private final int bit = 1 << ordinal();
+    private int excludedBits = 0;
+
+    private void excludes(MotionState... states) {
+      for (MotionState state : states) {
+        excludedBits |= state.bit;
+      }
+    }
+
+    /**
+     * @return the bit of this state in a set of motion flags.
+     */
+    public int getBit() {
+      return bit;
+    }
+
+    /**
+     * @param flags the current motion flags.
+     * @param value whether this state is now active.
+     * @return the motion flags with this state set, and any state it excludes cleared.
+     */
+    public int applyTo(int flags, boolean value) {
+      return value ? (flags & ~excludedBits) | bit : flags & ~bit;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.DEFAULT_BOT_FILL;
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_HEIGHT;
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_WIDTH;
+
+import utilities.metadata.AgentAction;
+import utilities.metadata.CollisionLayer;
+
+/**
+ * A {@code BotAgent} is an {@code Agent} driven by an {@code AgentPolicy} instead of the keyboard.
+ * Bots are in the {@code AGENT CollisionLayer}, so they collide with the level but not with each
+ * other or the {@code Player}. Create them with {@code GameController.addBot()}.
+ *
+ * @author Russell Newton
+ * @see AgentPolicy
+ **/
+public class BotAgent extends Agent {
+
+  private AgentPolicy policy;
+  private long updateCount = 0;
+
+  /**
+   * Creates a {@code BotAgent} with the default size and fill.
+   *
+   * @param controller the controller this {@code BotAgent} belongs to.
+   * @param policy chooses the {@code BotAgent's} actions every update.
+   */
+  public BotAgent(GameController controller, AgentPolicy policy, float startX, float startY) {
+    super(controller, startX, startY, DEFAULT_PLAYER_WIDTH, DEFAULT_PLAYER_HEIGHT,
+        DEFAULT_BOT_FILL, CollisionLayer.AGENT);
+    this.policy = policy;
+  }
+
+  @Override
+  protected void updateActions() {
+    setActions(policy.act(this, updateCount++));
+  }
+
+  @Override
+  protected int getStateSize() {
+    return super.getStateSize() + 1;
+  }
+
+  @Override
+  protected void saveState(double[] state, int offset) {
+    super.saveState(state, offset);
+    state[offset + super.getStateSize()] = updateCount;
+  }
+
+  @Override
+  protected void restoreState(double[] state, int offset) {
+    super.restoreState(state, offset);
+    updateCount = (long) state[offset + super.getStateSize()];
+  }
+
+  /**
+   * @param policy chooses the {@code BotAgent's} actions every update.
+   */
+  public void setPolicy(AgentPolicy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * @return the number of times this {@code BotAgent} has been updated.
+   */
+  public long getUpdateCount() {
+    return updateCount;
+  }
+
+  /**
+   * An {@code AgentPolicy} chooses which {@code AgentActions} a {@code BotAgent} holds. It is run
+   * once per update, so it should not allocate.
+   */
+  @FunctionalInterface
+  public interface AgentPolicy {
+
+    /**
+     * @param agent the {@code BotAgent} being driven. Its contact and motion states are up to date.
+     * @param updateCount the number of times {@code agent} has been updated before.
+     * @return the {@code AgentAction} bits to hold this update.
+     */
+    int act(BotAgent agent, long updateCount);
+  }
+
+  /**
+   * A simple {@code AgentPolicy} that walks until it reaches a wall, then turns around. It jumps
+   * every {@code jumpInterval} updates.
+   *
+   * @param jumpInterval the number of updates between jumps.
+   * @return the {@code AgentPolicy}.
+   */
+  public static AgentPolicy wanderPolicy(int jumpInterval) {
+    int walkRight = AgentAction.WALK_RIGHT.getBit();
+    int walkLeft = AgentAction.WALK_LEFT.getBit();
+    int jump = AgentAction.JUMP.getBit();
+    return (agent, updateCount) -> {
+      int actions = agent.getActions() & (walkRight | walkLeft);
+      if (actions == 0 || agent.is(MotionState.ON_WALL_RIGHT)) {
+        actions = walkLeft;
+      }
+      if (agent.is(MotionState.ON_WALL_LEFT)) {
+        actions = walkRight;
+      }
+      if (updateCount % jumpInterval == 0) {
+        actions |= jump;
+      }
+      return actions;
+    };
+  }
+}
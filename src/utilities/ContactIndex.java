@@ -0,0 +1,154 @@
+package utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.contacts.Contact;
+import utilities.metadata.CollisionLayer;
+
+/**
+ * A {@code ContactIndex} keeps track of which {@code Fixtures} are currently touching. It is fed by
+ * the {@code WorldContactListener} as contacts begin and end, so asking whether something is
+ * touching costs a lookup instead of another {@code ContactOperation}.<br><br> Touches are
+ * counted, so a {@code Fixture} resting on two {@code Obstacles} at once stays touching until it
+ * has left both.
+ *
+ * @author Russell Newton
+ * @see WorldContactListener
+ **/
+public class ContactIndex {
+
+  private static final int LAYER_BITS = 16;
+  private static final int[] NO_TOUCHES = new int[LAYER_BITS];
+
+  private final HashMap<Fixture, int[]> layerTouchCounts = new HashMap<>();
+  private final HashMap<Body, BodyContacts> bodyContacts = new HashMap<>();
+
+  /**
+   * Records that the two {@code Fixtures} of a contact have started touching.
+   */
+  void beginContact(Contact contact) {
+    Fixture fixtureA = contact.getFixtureA();
+    Fixture fixtureB = contact.getFixtureB();
+    countTouch(fixtureA, fixtureB, 1);
+    countTouch(fixtureB, fixtureA, 1);
+    getBodyContacts(fixtureA.getBody()).fixtures.add(fixtureB);
+    getBodyContacts(fixtureB.getBody()).fixtures.add(fixtureA);
+  }
+
+  /**
+   * Records that the two {@code Fixtures} of a contact have stopped touching.
+   */
+  void endContact(Contact contact) {
+    Fixture fixtureA = contact.getFixtureA();
+    Fixture fixtureB = contact.getFixtureB();
+    countTouch(fixtureA, fixtureB, -1);
+    countTouch(fixtureB, fixtureA, -1);
+    removeBodyContact(fixtureA.getBody(), fixtureB);
+    removeBodyContact(fixtureB.getBody(), fixtureA);
+  }
+
+  /**
+   * @return whether or not {@code fixture} is touching any {@code Fixture} in {@code layer}.
+   */
+  public boolean isTouching(Fixture fixture, CollisionLayer layer) {
+    return isTouching(fixture, layer.getCategoryBits());
+  }
+
+  /**
+   * @param categoryBits the category bits of one or more {@code CollisionLayers}.
+   * @return whether or not {@code fixture} is touching any {@code Fixture} in one of the layers.
+   */
+  public boolean isTouching(Fixture fixture, int categoryBits) {
+    int[] counts = layerTouchCounts.getOrDefault(fixture, NO_TOUCHES);
+    for (int bit = 0; bit < LAYER_BITS; bit++) {
+      if ((categoryBits & (1 << bit)) != 0 && counts[bit] > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return whether or not {@code fixture} is touching anything at all.
+   */
+  public boolean isTouching(Fixture fixture) {
+    return isTouching(fixture, -1);
+  }
+
+  /**
+   * @return the number of {@code Fixtures} in {@code layer} that {@code fixture} is touching.
+   */
+  public int getTouchCount(Fixture fixture, CollisionLayer layer) {
+    int[] counts = layerTouchCounts.getOrDefault(fixture, NO_TOUCHES);
+    return counts[Integer.numberOfTrailingZeros(layer.getCategoryBits())];
+  }
+
+  /**
+   * @return every {@code Fixture} of another body that is touching {@code body}. A {@code Fixture}
+   * appears once for each of {@code body's Fixtures} it touches. The list is a read-only view that
+   * stays up to date.
+   */
+  public List<Fixture> contactsOf(Body body) {
+    return getBodyContacts(body).view;
+  }
+
+  /**
+   * Forgets everything recorded about {@code body} and its {@code Fixtures}. Run this once the
+   * body has been destroyed.
+   */
+  void forget(Body body) {
+    bodyContacts.remove(body);
+    for (Fixture fixture = body.getFixtureList(); fixture != null; fixture = fixture.getNext()) {
+      layerTouchCounts.remove(fixture);
+    }
+  }
+
+  /**
+   * Forgets every touch. Run this if the {@code World} is torn down without its contacts ending.
+   */
+  void clear() {
+    layerTouchCounts.clear();
+    bodyContacts.clear();
+  }
+
+  private void countTouch(Fixture fixture, Fixture other, int change) {
+    int[] counts = layerTouchCounts.get(fixture);
+    if (counts == null) {
+      if (change < 0) {
+        return;
+      }
+      counts = new int[LAYER_BITS];
+      layerTouchCounts.put(fixture, counts);
+    }
+    int otherBits = other.getFilterData().categoryBits;
+    for (int bit = 0; bit < LAYER_BITS; bit++) {
+      if ((otherBits & (1 << bit)) != 0) {
+        counts[bit] = Math.max(0, counts[bit] + change);
+      }
+    }
+  }
+
+  private BodyContacts getBodyContacts(Body body) {
+    return bodyContacts.computeIfAbsent(body, key -> new BodyContacts());
+  }
+
+  private void removeBodyContact(Body body, Fixture other) {
+    BodyContacts contacts = bodyContacts.get(body);
+    if (contacts != null) {
+      contacts.fixtures.remove(other);
+    }
+  }
+
+  /**
+   * The {@code Fixtures} touching one body, with a cached read-only view of them.
+   */
+  private static final class BodyContacts {
+
+    private final ArrayList<Fixture> fixtures = new ArrayList<>();
+    private final List<Fixture> view = Collections.unmodifiableList(fixtures);
+  }
+}
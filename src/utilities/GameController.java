@@ -1,19 +1,34 @@
 package utilities;
 
 import static utilities.metadata.StaticUtilities.DEFAULT_BACKGROUND;
+import static utilities.metadata.StaticUtilities.DEFAULT_OBSTACLE_FILL;
+import static utilities.metadata.StaticUtilities.DEFER_CONTACT_EVENTS;
 import static utilities.metadata.StaticUtilities.FRAME_INTERVAL;
 import static utilities.metadata.StaticUtilities.GRAVITY_ACCELERATION;
+import static utilities.metadata.StaticUtilities.PHYSICS_SUB_STEPS;
 import static utilities.metadata.StaticUtilities.POSITION_ITERATIONS;
+import static utilities.metadata.StaticUtilities.REWIND_BUFFER_SIZE;
+import static utilities.metadata.StaticUtilities.REWIND_SPEED;
+import static utilities.metadata.StaticUtilities.STEP_INTERVAL;
 import static utilities.metadata.StaticUtilities.VELOCITY_ITERATIONS;
+import static utilities.metadata.StaticUtilities.WARMUP_ACTION_INTERVAL;
+import static utilities.metadata.StaticUtilities.WARMUP_SEED;
 import static utilities.metadata.StaticUtilities.getFillFromString;
 
-import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javafx.animation.Animation;
@@ -21,6 +36,7 @@ import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
@@ -29,6 +45,7 @@ import javafx.util.Duration;
 import javafx.util.Pair;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.World;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -38,7 +55,13 @@ import org.waltonrobotics.motion.BezierCurve;
 import org.waltonrobotics.motion.LinearInterpolation;
 import org.waltonrobotics.motion.Path;
 import org.waltonrobotics.motion.Spline;
+import utilities.BotAgent.AgentPolicy;
+import utilities.metadata.AgentAction;
+import utilities.metadata.AssetBundle;
+import utilities.metadata.CollisionLayer;
+import utilities.metadata.LatencyRecorder;
 import utilities.metadata.UserData;
+import utilities.metadata.WorldSettings;
 
 /**
  * @author Russell Newton
@@ -51,41 +74,174 @@ public abstract class GameController {
   AnchorPane root;
   World world;
   WorldContactListener contactListener;
+  InputDispatcher inputDispatcher = new InputDispatcher();
   private Timeline executionTimeline;
   private LinkedList<Pair<String, Obstacle>> obstacles = new LinkedList<>();
   private double executionTime = 0;
+  private long lastFrameTime = 0;
+  long inputSampleTime = Long.MAX_VALUE;
+  private final ArrayList<BotAgent> bots = new ArrayList<>();
+  private RemoteController remoteController;
+  private NetworkSession networkSession;
+  private InputRecording inputRecording;
+  private InputReplay inputReplay;
+  private StateRecorder stateRecorder;
+  private final WorldSnapshot startSnapshot = new WorldSnapshot();
+  private RewindBuffer rewindBuffer;
+  private final ObstaclePool obstaclePool = new ObstaclePool(this);
+  private final ArrayList<Obstacle> pendingDestructions = new ArrayList<>();
+  long bodiesCreated = 0;
+  private long bodiesDestroyed = 0;
+  private KeyCode rewindKey;
+  private boolean headless = false;
+  private boolean disposed = false;
+  private final HashMap<String, HashMap<String, Map<?, ?>>> levelDefinitions = new HashMap<>();
+  private final HashMap<String, HashMap<String, Obstacle>> levelObstacles = new HashMap<>();
+  private final ArrayList<String> changedLevelFiles = new ArrayList<>();
+  private LevelWatcher levelWatcher;
+  private TickListener[] tickListeners = new TickListener[0];
+  private final TickListener levelReloader = new TickListener() {
+    @Override
+    public void beforeTick() {
+      reloadChangedLevelFiles();
+    }
+  };
+  private final TickListener replayFeeder = new TickListener() {
+    @Override
+    public void beforeTick() {
+      inputReplay.feed(inputDispatcher, inputSampleTime);
+    }
+
+    @Override
+    public void afterTick() {
+      if (inputReplay.isFinished()) {
+        finishReplay();
+      }
+    }
+  };
 
   /**
    * Creates a new {@code GameController}.
    */
   public GameController() {
+    this(new WorldSettings());
+  }
+
+  /**
+   * Creates a new {@code GameController} whose {@code World} is built from {@code worldSettings}.
+   * Call this from a subclass constructor to change the broadphase, pool sizes, or solver
+   * features.
+   */
+  protected GameController(WorldSettings worldSettings) {
     //Set up physics engine
     Vec2 gravity = new Vec2(0f, GRAVITY_ACCELERATION);
-    world = new World(gravity);
+    world = worldSettings.createWorld(gravity);
     contactListener = new WorldContactListener();
+    contactListener.setDeferred(DEFER_CONTACT_EVENTS);
     world.setContactListener(contactListener);
 
     //Set up executionTimeline
     executionTimeline = new Timeline(
         new KeyFrame(Duration.millis(FRAME_INTERVAL),
-            (event) -> {
-              //Update the engine and player
-              stepWorld();
-              player.update();
-              updateObstacles();
-
-              //Run periodic controller methods
-              execute();
-              if (isFinished()) {
-                end();
-                executionTimeline.stop();
-              }
-            }));
+            (event) -> runFrame(System.nanoTime())));
     executionTimeline.setCycleCount(Animation.INDEFINITE);
   }
 
   /**
-   * Run when the {@code GameController} is loaded. Requires the {@code @FXML} tag.
+   * Runs the execution cycles of one frame. The frame is split evenly between {@code
+   * PHYSICS_SUB_STEPS} cycles, each stepping the simulation by {@code STEP_INTERVAL}, and each key
+   * event is applied in the cycle whose slice of the frame it happened in. Every cycle also updates
+   * the screen and runs {@code execute()}, so raising {@code PHYSICS_SUB_STEPS} above 1 multiplies
+   * the cost of a frame.
+   *
+   * @param frameTime the {@code System.nanoTime()} of this frame.
+   */
+  private void runFrame(long frameTime) {
+    long frameStart = lastFrameTime == 0 ? frameTime : lastFrameTime;
+    lastFrameTime = frameTime;
+    for (int subStep = 1; subStep <= PHYSICS_SUB_STEPS; subStep++) {
+      if (!tick(frameStart + (frameTime - frameStart) * subStep / PHYSICS_SUB_STEPS)) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Runs one execution cycle: the {@code TickListeners}, the physics step, the player and obstacle
+   * updates, and the periodic controller methods.
+   *
+   * @param inputSampleTime key events that happened at or before this {@code System.nanoTime()}
+   * are applied in this cycle.
+   * @return whether or not the controller is still running.
+   */
+  boolean tick(long inputSampleTime) {
+    if (disposed) {
+      return false;
+    }
+    this.inputSampleTime = inputSampleTime;
+    if (rewindBuffer != null && inputDispatcher.isDown(rewindKey)) {
+      if (rewindBuffer.rewind(Math.min(REWIND_SPEED, rewindBuffer.getCount() - 1)) && !headless) {
+        updateScreenMasks();
+      }
+      return true;
+    }
+    for (TickListener listener : tickListeners) {
+      listener.beforeTick();
+    }
+
+    //Update the engine, player, and bots
+    flushPending();
+    stepWorld();
+    if (remoteController != null) {
+      player.setActions(remoteController.exchange(player));
+    }
+    player.update();
+    for (int i = 0; i < bots.size(); i++) {
+      bots.get(i).update();
+    }
+    updateObstacles();
+    for (TickListener listener : tickListeners) {
+      listener.afterTick();
+    }
+
+    //Run periodic controller methods
+    execute();
+    if (isFinished()) {
+      end();
+      executionTimeline.stop();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Run {@code listener} around every execution cycle from the next one on, after the listeners
+   * already added.
+   */
+  public void addTickListener(TickListener listener) {
+    //Copied on write, so a listener can add or remove one while they are being run
+    tickListeners = Arrays.copyOf(tickListeners, tickListeners.length + 1);
+    tickListeners[tickListeners.length - 1] = listener;
+  }
+
+  /**
+   * Stop running {@code listener}. Removing one that was never added does nothing.
+   */
+  public void removeTickListener(TickListener listener) {
+    for (int i = 0; i < tickListeners.length; i++) {
+      if (tickListeners[i] == listener) {
+        TickListener[] remaining = new TickListener[tickListeners.length - 1];
+        System.arraycopy(tickListeners, 0, remaining, 0, i);
+        System.arraycopy(tickListeners, i + 1, remaining, i, remaining.length - i);
+        tickListeners = remaining;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Run when the {@code GameController} is loaded. Requires the {@code @FXML} tag. This may run on
+   * a background thread, so the timeline is not started until the screen is activated.
    */
   @FXML
   protected void initialize() {
@@ -94,7 +250,67 @@ public abstract class GameController {
     createObstacles("/assets/obstacles/Boundaries.json");
 
     init();
-    executionTimeline.play();
+    saveSnapshot(startSnapshot);
+  }
+
+  /**
+   * Sets up the controller on a new root pane, without a .fxml file, the same way {@code
+   * initialize()} sets it up when it is loaded from one. This may run on a background thread.
+   *
+   * @return the root pane to show.
+   */
+  public AnchorPane createScreen() {
+    root = new AnchorPane();
+    initialize();
+    return root;
+  }
+
+  /**
+   * Runs this controller as a throwaway copy of its level, so the JIT compiles the physics step,
+   * contact callbacks, screenMask updates, and path following before the real level is shown. The
+   * {@code Player} holds random actions, changed every {@code WARMUP_ACTION_INTERVAL} cycles. The
+   * controller is disposed afterwards, so nothing it did is kept. Set it up with {@code
+   * createScreen()} first, and never show it.
+   *
+   * @param ticks the number of execution cycles to run.
+   */
+  public void warmUp(int ticks) {
+    Random random = new Random(WARMUP_SEED);
+    for (int i = 0; i < ticks; i++) {
+      if (i % WARMUP_ACTION_INTERVAL == 0) {
+        player.setActions(random.nextInt(1 << AgentAction.values().length));
+      }
+      if (!tick()) {
+        break;
+      }
+    }
+    dispose();
+  }
+
+  /**
+   * Sets up the controller without a .fxml file or a running timeline, so it can be stepped with
+   * {@code tick()} from any thread. {@code Obstacle} screenMasks are created but never updated. The
+   * JavaFX toolkit must still be started, because {@code StaticUtilities} reads the screen size.
+   */
+  public void initializeHeadless() {
+    headless = true;
+    root = new AnchorPane();
+    player = new Player(this);
+    setBackground(backgroundPaint);
+    createObstacles("/assets/obstacles/Boundaries.json");
+
+    init();
+    saveSnapshot(startSnapshot);
+  }
+
+  /**
+   * Runs one execution cycle, applying every key event received so far. Use this to step a
+   * headless controller.
+   *
+   * @return whether or not the controller is still running.
+   */
+  public boolean tick() {
+    return tick(System.nanoTime());
   }
 
   /**
@@ -132,7 +348,7 @@ public abstract class GameController {
    * Takes a JSON formatted {@code Obstacle} and returns a parameter {@code String} that can be
    * passed into {@code Obstacle.fromString()}.
    */
-  private String getObstacleStringFromJSONMap(Map obstacle) {
+  private String getObstacleStringFromJSONMap(Map<?, ?> obstacle) {
     float x = Float.parseFloat("" + obstacle.get("x"));
     float y = Float.parseFloat("" + obstacle.get("y"));
     float width = Float.parseFloat("" + obstacle.get("width"));
@@ -152,64 +368,27 @@ public abstract class GameController {
    * for formatting help.
    */
   protected void createObstaclesFromJSON(String filePath) {
-    try {
-      String absolutePath = new File("").getAbsolutePath();
-      JSONObject json = (JSONObject) (new JSONParser().parse(
-          new FileReader(absolutePath + "\\src" + filePath)));
+    try (Reader reader = new InputStreamReader(AssetBundle.load(filePath),
+        StandardCharsets.UTF_8)) {
+      JSONObject json = (JSONObject) (new JSONParser().parse(reader));
+
+      defineCollisionLayersFromJSON((Map<?, ?>) json.get("layers"), filePath);
 
-      Map staticObstacles = (Map) json.get("obstacles");
-      Iterator<Entry> iterator = staticObstacles.entrySet().iterator();
+      Map<?, ?> staticObstacles = (Map<?, ?>) json.get("obstacles");
+      Iterator<? extends Entry<?, ?>> iterator = staticObstacles.entrySet().iterator();
+      HashMap<String, Map<?, ?>> definitions =
+          levelDefinitions.computeIfAbsent(filePath, (file) -> new HashMap<>());
+      HashMap<String, Obstacle> built =
+          levelObstacles.computeIfAbsent(filePath, (file) -> new HashMap<>());
 
       while (iterator.hasNext()) {
-        Entry obstacleEntry = iterator.next();
-        Map obstacle = (Map) obstacleEntry.getValue();
-        String type = (String) obstacle.get("type");
-        if (type == null) {
-          type = "";
-        }
-        switch (type) {
-          case "kinematic":
-            try {
-              String staticString = getObstacleStringFromJSONMap(obstacle);
-              float speed = Float.parseFloat("" + obstacle.get("speed"));
-              String interpolation = (String) obstacle.get("interpolation");
-              LinkedList<Pose> points = new LinkedList<>();
-              JSONArray path = (JSONArray) obstacle.get("path");
-              for (Object point : path) {
-                JSONArray pointArray = (JSONArray) point;
-                float x = Float.parseFloat(String.valueOf(pointArray.get(0)));
-                float y = Float.parseFloat(String.valueOf(pointArray.get(1)));
-                points.add(new Pose(x, y));
-              }
-              Path interp;
-              switch (interpolation) {
-                case "cubic":
-                  interp = new Spline(speed, 0.1, speed, speed, false, points);
-                  break;
-                case "bezier":
-                  interp = new BezierCurve(speed, 0.1, speed, speed, false, points);
-                  break;
-                case "linear":
-                default:
-                  interp = new LinearInterpolation(speed, 0.1, speed, speed, false,
-                      points);
-                  break;
-              }
-              this.obstacles
-                  .add(new Pair<>((String) obstacleEntry.getKey(), KinematicObstacle.fromString(
-                      this, staticString, speed, interp)));
-            } catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException e) {
-              e.printStackTrace();
-              System.out.println("Kinematic obstacle defined wrong. Changing to static");
-              this.obstacles.add(new Pair<>((String) obstacleEntry.getKey(),
-                  Obstacle.fromString(this, getObstacleStringFromJSONMap(obstacle))));
-            }
-            break;
-          default:
-            this.obstacles.add(new Pair<>((String) obstacleEntry.getKey(),
-                Obstacle.fromString(this, getObstacleStringFromJSONMap(obstacle))));
-            break;
-        }
+        Entry<?, ?> obstacleEntry = iterator.next();
+        String name = (String) obstacleEntry.getKey();
+        Map<?, ?> definition = (Map<?, ?>) obstacleEntry.getValue();
+        Obstacle created = createObstacleFromJSONMap(name, definition);
+        this.obstacles.add(new Pair<>(name, created));
+        definitions.put(name, definition);
+        built.put(name, created);
       }
     } catch (Exception e) {
       System.out.println("Obstacle file at " + filePath + " cannot be opened.");
@@ -218,6 +397,217 @@ public abstract class GameController {
 //    printWorldBodyUserData();
   }
 
+  /**
+   * Rebuilds the {@code Obstacles} of a loaded JSON file that were added, removed, or changed in
+   * it since it was loaded, matched by name. The file is read with {@code AssetBundle.load()}, the
+   * same way it was loaded. Unchanged {@code Obstacles} are left as they are, and removed or
+   * changed ones are destroyed before the next physics step, so this is safe to run while the
+   * level is playing. New collision layers are defined, but changes to existing ones are rejected.
+   *
+   * @param filePath the location the file was loaded from with {@code createObstacles()}.
+   */
+  protected void reloadObstaclesFromJSON(String filePath) {
+    HashMap<String, Map<?, ?>> definitions = levelDefinitions.get(filePath);
+    HashMap<String, Obstacle> built = levelObstacles.get(filePath);
+    if (definitions == null) {
+      System.out.println("Obstacle file at " + filePath + " was never loaded.");
+      return;
+    }
+    long start = System.nanoTime();
+    Map<?, ?> newDefinitions;
+    try (Reader reader = new InputStreamReader(AssetBundle.load(filePath),
+        StandardCharsets.UTF_8)) {
+      JSONObject json = (JSONObject) (new JSONParser().parse(reader));
+      defineCollisionLayersFromJSON((Map<?, ?>) json.get("layers"), filePath);
+      newDefinitions = (Map<?, ?>) json.get("obstacles");
+    } catch (Exception e) {
+      System.out.println("Obstacle file at " + filePath + " cannot be reloaded.");
+      e.printStackTrace();
+      return;
+    }
+    if (newDefinitions == null) {
+      newDefinitions = Collections.emptyMap();
+    }
+
+    //Destroy the removed and changed Obstacles
+    int removed = 0;
+    int changed = 0;
+    Iterator<Entry<String, Map<?, ?>>> iterator = definitions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Entry<String, Map<?, ?>> definition = iterator.next();
+      Object newDefinition = newDefinitions.get(definition.getKey());
+      if (!definition.getValue().equals(newDefinition)) {
+        Obstacle obstacle = built.remove(definition.getKey());
+        if (obstacle != null) {
+          destroyObstacle(obstacle);
+        }
+        iterator.remove();
+        if (newDefinition == null) {
+          removed++;
+        } else {
+          changed++;
+        }
+      }
+    }
+
+    //Create the added and changed Obstacles
+    int created = 0;
+    for (Entry<?, ?> entry : newDefinitions.entrySet()) {
+      String name = (String) entry.getKey();
+      if (!definitions.containsKey(name)) {
+        Map<?, ?> definition = (Map<?, ?>) entry.getValue();
+        Obstacle obstacle = createObstacleFromJSONMap(name, definition);
+        definitions.put(name, definition);
+        if (obstacle != null) {
+          obstacles.add(new Pair<>(name, obstacle));
+          obstacle.initialize();
+          built.put(name, obstacle);
+        }
+        created++;
+      }
+    }
+
+    System.out.println(String.format("Reloaded %s: %d added, %d changed, %d removed in %.2f ms",
+        filePath, created - changed, changed, removed, (System.nanoTime() - start) / 1e6));
+  }
+
+  /**
+   * Reload the obstacle JSON files of this level whenever they are saved, while it keeps running.
+   * Only the {@code Obstacles} that were added, removed, or changed are rebuilt. Until the files
+   * stop being watched, assets are read from the {@code src} folder first, and every file is
+   * reloaded once in the next execution cycle, in case the level was loaded from an older copy in
+   * the asset bundle.
+   *
+   * @see #reloadObstaclesFromJSON(String)
+   */
+  public void watchLevelFiles() {
+    stopWatchingLevelFiles();
+    try {
+      levelWatcher = new LevelWatcher(levelDefinitions.keySet());
+      AssetBundle.addSourcePreference();
+      changedLevelFiles.addAll(levelDefinitions.keySet());
+      addTickListener(levelReloader);
+    } catch (IOException e) {
+      System.out.println("Level files cannot be watched.");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Stop watching the obstacle JSON files of this level, if they are watched. Assets stop being
+   * read from the {@code src} folder first once no other controller watches its level files.
+   */
+  public void stopWatchingLevelFiles() {
+    if (levelWatcher != null) {
+      removeTickListener(levelReloader);
+      levelWatcher.close();
+      levelWatcher = null;
+      AssetBundle.removeSourcePreference();
+    }
+  }
+
+  /**
+   * Reloads every level file the {@code LevelWatcher} saw change. This is run between physics
+   * steps.
+   */
+  private void reloadChangedLevelFiles() {
+    levelWatcher.pollChanged(changedLevelFiles);
+    for (int i = 0; i < changedLevelFiles.size(); i++) {
+      reloadObstaclesFromJSON(changedLevelFiles.get(i));
+    }
+    changedLevelFiles.clear();
+  }
+
+  /**
+   * Creates a single uninitialized {@code Obstacle} from its JSON map.
+   *
+   * @param name the name of the {@code Obstacle}.
+   * @param obstacle the JSON map declaring the {@code Obstacle}.
+   */
+  private Obstacle createObstacleFromJSONMap(String name, Map<?, ?> obstacle) {
+    String type = (String) obstacle.get("type");
+    if (type == null) {
+      type = "";
+    }
+    Obstacle created;
+    switch (type) {
+      case "kinematic":
+        try {
+          String staticString = getObstacleStringFromJSONMap(obstacle);
+          float speed = Float.parseFloat("" + obstacle.get("speed"));
+          String interpolation = (String) obstacle.get("interpolation");
+          LinkedList<Pose> points = new LinkedList<>();
+          JSONArray path = (JSONArray) obstacle.get("path");
+          for (Object point : path) {
+            JSONArray pointArray = (JSONArray) point;
+            float x = Float.parseFloat(String.valueOf(pointArray.get(0)));
+            float y = Float.parseFloat(String.valueOf(pointArray.get(1)));
+            points.add(new Pose(x, y));
+          }
+          Path interp;
+          switch (interpolation) {
+            case "cubic":
+              interp = new Spline(speed, 0.1, speed, speed, false, points);
+              break;
+            case "bezier":
+              interp = new BezierCurve(speed, 0.1, speed, speed, false, points);
+              break;
+            case "linear":
+            default:
+              interp = new LinearInterpolation(speed, 0.1, speed, speed, false,
+                  points);
+              break;
+          }
+          created = KinematicObstacle.fromString(this, staticString, speed, interp);
+        } catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException e) {
+          e.printStackTrace();
+          System.out.println("Kinematic obstacle " + name + " defined wrong. Changing to static");
+          created = Obstacle.fromString(this, getObstacleStringFromJSONMap(obstacle));
+        }
+        break;
+      default:
+        created = Obstacle.fromString(this, getObstacleStringFromJSONMap(obstacle));
+        break;
+    }
+
+    String layer = (String) obstacle.get("layer");
+    if (created != null && layer != null) {
+      created.setCollisionLayer(CollisionLayer.get(layer));
+    }
+    return created;
+  }
+
+  /**
+   * Defines the {@code CollisionLayers} declared in the "layers" section of an obstacle JSON file.
+   * Each layer maps to an array of the names of the layers it collides with, which also takes in
+   * the {@code Player}, sensor, and agent layers unless it names one of them. Layers are shared by
+   * every controller and their bits are already set on the {@code Fixtures} built with them, so a
+   * layer that is already defined to collide with different layers is rejected and left as it
+   * was, even when the file is reloaded.
+   */
+  private void defineCollisionLayersFromJSON(Map<?, ?> layers, String filePath) {
+    if (layers == null) {
+      return;
+    }
+    for (Entry<?, ?> layer : layers.entrySet()) {
+      JSONArray collidesWith = (JSONArray) layer.getValue();
+      String[] names = new String[collidesWith == null ? 0 : collidesWith.size()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = String.valueOf(collidesWith.get(i));
+      }
+      try {
+        CollisionLayer.defineForLevel((String) layer.getKey(), names);
+      } catch (IllegalArgumentException e) {
+        System.out.println("Collision layer " + layer.getKey() + " in " + filePath
+            + " collides with different layers than it was defined with. Layers cannot be "
+            + "redefined, so it is left as it was. Restart to apply the change.");
+      } catch (IllegalStateException e) {
+        System.out.println("Collision layer " + layer.getKey() + " cannot be defined.");
+        e.printStackTrace();
+      }
+    }
+  }
+
   private void printWorldBodyUserData() {
     Body body = world.getBodyList();
     System.out.println(Arrays.toString(
@@ -317,11 +707,14 @@ public abstract class GameController {
   }
 
   /**
-   * Steps the physics simulation. This is run whenever the {@code execute()} method is run.
+   * Steps the physics simulation by {@code STEP_INTERVAL}, one of the {@code PHYSICS_SUB_STEPS}
+   * slices of a frame. This is run whenever the {@code execute()} method is run. Any contact events
+   * deferred during the step are delivered afterwards.
    */
   void stepWorld() {
-    world.step((float) FRAME_INTERVAL / 1000.0f, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
-    executionTime += FRAME_INTERVAL / 1000;
+    world.step((float) STEP_INTERVAL / 1000.0f, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+    contactListener.flushDeferredContacts();
+    executionTime += STEP_INTERVAL / 1000;
   }
 
   /**
@@ -340,6 +733,22 @@ public abstract class GameController {
     for (Pair<String, Obstacle> obstacle : obstacles) {
       obstacle.getValue().update();
     }
+    obstaclePool.update();
+  }
+
+  /**
+   * Moves the screenMask of the {@code Player}, every bot, and every {@code Obstacle} to its body,
+   * without updating anything else. This is run after the state is rewound.
+   */
+  private void updateScreenMasks() {
+    player.updateScreenMask();
+    for (int i = 0; i < bots.size(); i++) {
+      bots.get(i).updateScreenMask();
+    }
+    for (Pair<String, Obstacle> obstacle : obstacles) {
+      obstacle.getValue().updateScreenMask();
+    }
+    obstaclePool.updateScreenMasks();
   }
 
   /**
@@ -354,24 +763,510 @@ public abstract class GameController {
   }
 
   /**
-   * Removes the first {@code Obstacle} with the given name.
+   * Spawns a short-lived {@code Obstacle}, such as a projectile or falling block, from the {@code
+   * ObstaclePool}. A released {@code Obstacle} of the same width, height, and {@code BodyType} is
+   * reused if there is one. It is updated every execution cycle until it is released.
+   *
+   * @param startX the x coordinate to spawn at.
+   * @param startY the y coordinate to spawn at.
+   * @param width the width of the {@code Obstacle}.
+   * @param height the height of the {@code Obstacle}.
+   * @param bodyType the {@code BodyType} of the {@code Obstacle}.
+   * @param fill the fill of the {@code Obstacle's} screenMask.
+   * @return the {@code Obstacle}, at rest.
+   */
+  protected Obstacle spawnObstacle(float startX, float startY, float width, float height,
+      BodyType bodyType, Paint fill) {
+    return obstaclePool.spawn(startX, startY, width, height, bodyType, fill);
+  }
+
+  /**
+   * Creates a {@code DYNAMIC Obstacle} with the default fill from the {@code ObstaclePool}.
+   */
+  protected Obstacle spawnObstacle(float startX, float startY, float width, float height) {
+    return spawnObstacle(startX, startY, width, height, BodyType.DYNAMIC, DEFAULT_OBSTACLE_FILL);
+  }
+
+  /**
+   * Returns a spawned {@code Obstacle} to the {@code ObstaclePool}. It is taken out of play before
+   * the next physics step, so this is safe to call from a {@code ContactOperation}. Do not use the
+   * {@code Obstacle} after releasing it.
+   */
+  protected void releaseObstacle(Obstacle obstacle) {
+    obstaclePool.release(obstacle);
+  }
+
+  /**
+   * @return the pool of spawned {@code Obstacles}, with its hit rate and high-water marks.
+   */
+  public ObstaclePool getObstaclePool() {
+    return obstaclePool;
+  }
+
+  /**
+   * Removes the first {@code Obstacle} with the given name that is not already being removed. It
+   * is destroyed before the next physics step.
    *
    * @param name the {@code Obstacle's} name.
+   * @see #destroyObstacle(Obstacle)
    */
   protected void removeObstacle(String name) {
     for (Pair<String, Obstacle> obstacle : obstacles) {
-      if (obstacle.getKey().equals(name)) {
-        obstacles.remove(obstacle);
-        removeFromScreen(obstacle.getValue().getScreenMask());
+      if (obstacle.getKey().equals(name) && !obstacle.getValue().isPendingDestruction) {
+        destroyObstacle(obstacle.getValue());
         break;
       }
     }
   }
 
+  /**
+   * Destroy an {@code Obstacle} before the next physics step. Its body and {@code
+   * Fixtures}, {@code ContactOperations}, and screenMask are released then, and it is no longer
+   * updated, whether it was added, spawned, or a bot. This is safe to call from a {@code
+   * ContactOperation}. Destroying one twice does nothing.
+   */
+  protected void destroyObstacle(Obstacle obstacle) {
+    if (!obstacle.isPendingDestruction && !obstacle.isDestroyed()) {
+      obstacle.isPendingDestruction = true;
+      pendingDestructions.add(obstacle);
+    }
+  }
+
+  /**
+   * Destroys every {@code Obstacle} and deactivates every spawned one released since the last
+   * flush. This is run right before each physics step, so everything queued during the last step,
+   * its contact events, and the updates after it is out of play before the next one.
+   */
+  private void flushPending() {
+    flushDestructions();
+    obstaclePool.flushReleases();
+  }
+
+  /**
+   * Destroys every {@code Obstacle} queued since the last flush.
+   */
+  void flushDestructions() {
+    for (int i = 0; i < pendingDestructions.size(); i++) {
+      Obstacle obstacle = pendingDestructions.get(i);
+      obstacles.removeIf(pair -> pair.getValue() == obstacle);
+      if (obstacle instanceof BotAgent) {
+        bots.remove(obstacle);
+      }
+      obstaclePool.discard(obstacle);
+      obstacle.destroy();
+      obstacle.isPendingDestruction = false;
+      bodiesDestroyed++;
+    }
+    pendingDestructions.clear();
+  }
+
+  /**
+   * @return the number of bodies in the {@code World}.
+   */
+  public int getLiveBodyCount() {
+    return world.getBodyCount();
+  }
+
+  /**
+   * @return the number of {@code Obstacle} bodies created in this controller.
+   */
+  public long getBodiesCreated() {
+    return bodiesCreated;
+  }
+
+  /**
+   * @return the number of {@code Obstacles} destroyed in this controller.
+   */
+  public long getBodiesDestroyed() {
+    return bodiesDestroyed;
+  }
+
+  /**
+   * @return the number of bodies in the {@code World} that no added {@code Obstacle}, bot, spawned
+   * {@code Obstacle}, or the {@code Player} owns. Anything above 0 is a leak.
+   */
+  public int getUntrackedBodyCount() {
+    int owned = obstacles.size() + bots.size() + obstaclePool.getBodyCount()
+        + (player == null ? 0 : 1);
+    return world.getBodyCount() - owned;
+  }
+
+  /**
+   * Adds a {@code BotAgent} driven by {@code policy}. It is updated every execution cycle, right
+   * after the {@code Player}.
+   *
+   * @param policy chooses the {@code BotAgent's} actions every update.
+   * @param startX the starting x coordinate of the {@code BotAgent}.
+   * @param startY the starting y coordinate of the {@code BotAgent}.
+   * @return the {@code BotAgent}.
+   */
+  public BotAgent addBot(AgentPolicy policy, float startX, float startY) {
+    BotAgent bot = new BotAgent(this, policy, startX, startY);
+    bots.add(bot);
+    return bot;
+  }
+
+  /**
+   * Removes a {@code BotAgent} from this controller, its {@code World}, and the screen once the
+   * current physics step is over.
+   */
+  public void removeBot(BotAgent bot) {
+    if (bots.contains(bot)) {
+      destroyObstacle(bot);
+    }
+  }
+
+  /**
+   * Drive the {@code Player} from a {@code RemotePolicy} running in a separate process. Its actions
+   * replace the {@code Player's} held actions at the start of every execution cycle. A policy that
+   * hangs or crashes is stopped without stopping the game.
+   *
+   * @param policyClassName the name of a {@code RemotePolicy} class on the classpath.
+   */
+  protected void useRemoteController(String policyClassName) {
+    stopRemoteController();
+    try {
+      remoteController = new RemoteController(policyClassName);
+    } catch (IOException e) {
+      System.out.println("Remote controller " + policyClassName + " cannot be started.");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Stop the remote controller process, if there is one. The {@code Player} keeps its last
+   * actions.
+   */
+  protected void stopRemoteController() {
+    if (remoteController != null) {
+      remoteController.close();
+      remoteController = null;
+    }
+  }
+
+  /**
+   * @return the remote controller driving the {@code Player}, or null if there is none.
+   */
+  public RemoteController getRemoteController() {
+    return remoteController;
+  }
+
+  /**
+   * Host this level for {@code NetworkClients}. This controller becomes the authority, and every
+   * client that joins gets a {@code BotAgent} driven by its input.
+   *
+   * @param port the UDP port to listen on.
+   */
+  protected void hostServer(int port) {
+    stopNetworkSession();
+    try {
+      networkSession = new NetworkServer(this, port);
+      addTickListener(networkSession);
+    } catch (IOException e) {
+      System.out.println("Server cannot listen on port " + port + ".");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Join a level hosted by a {@code NetworkServer}. The server must be running the same level.
+   *
+   * @param host the server's host name or address.
+   * @param port the server's UDP port.
+   */
+  protected void joinServer(String host, int port) {
+    stopNetworkSession();
+    try {
+      networkSession = new NetworkClient(this, host, port);
+      addTickListener(networkSession);
+    } catch (IOException e) {
+      System.out.println("Server " + host + ":" + port + " cannot be reached.");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Leave or stop hosting the current network session, if there is one.
+   */
+  protected void stopNetworkSession() {
+    if (networkSession != null) {
+      removeTickListener(networkSession);
+      networkSession.close();
+      networkSession = null;
+    }
+  }
+
+  /**
+   * @return the network session this controller is hosting or has joined, or null if there is
+   * none.
+   */
+  public NetworkSession getNetworkSession() {
+    return networkSession;
+  }
+
+  /**
+   * Start recording the key transitions applied in every execution cycle from the next one on.
+   * Replaying the recording in a fresh copy of this level reproduces the session, so start
+   * recording before the first cycle.
+   */
+  public void startRecording() {
+    stopRecording();
+    inputRecording = new InputRecording(this);
+    inputDispatcher.setRecording(inputRecording);
+    addTickListener(inputRecording);
+  }
+
+  /**
+   * Stop recording.
+   *
+   * @return the recording, or null if nothing was being recorded.
+   */
+  public InputRecording stopRecording() {
+    InputRecording recording = inputRecording;
+    if (recording != null) {
+      removeTickListener(recording);
+      recording.finish(this);
+      inputDispatcher.setRecording(null);
+      inputRecording = null;
+    }
+    return recording;
+  }
+
+  /**
+   * Feed {@code recording} into this controller in place of real key events, one recorded
+   * execution cycle per cycle. Real key events are ignored until the replay finishes. This works
+   * the same with or without a timeline; step a headless controller with {@code tick()} to replay
+   * at full speed.
+   *
+   * @param recording a finished recording of this level.
+   */
+  public void startReplay(InputRecording recording) {
+    if (recording.getConfigHash() != InputRecording.hashConfig(this)) {
+      System.out.println("Replay of " + recording.getControllerClassName()
+          + " was recorded with a different controller or physics settings.");
+    } else if (recording.getLevelHash() != InputRecording.hashLevel(this)) {
+      System.out.println("Replay of " + recording.getControllerClassName()
+          + " was recorded from a different level state.");
+    }
+    inputReplay = new InputReplay(recording);
+    inputDispatcher.setReplaying(true);
+    addTickListener(replayFeeder);
+  }
+
+  /**
+   * @return the replay feeding this controller, or null if there is none.
+   */
+  public InputReplay getInputReplay() {
+    return inputReplay;
+  }
+
+  /**
+   * @return whether or not the last replay ended in the exact state it was recorded in. Check this
+   * once the replay has finished.
+   */
+  public boolean matchesReplay(InputRecording recording) {
+    return recording.getFinalStateHash() == InputRecording.hashState(this);
+  }
+
+  private void finishReplay() {
+    removeTickListener(replayFeeder);
+    inputReplay = null;
+    inputDispatcher.setReplaying(false);
+  }
+
+  /**
+   * Saves the simulation state of this controller into {@code snapshot}, to be restored later with
+   * {@code restoreSnapshot()}. Use this for checkpoints.
+   */
+  public void saveSnapshot(WorldSnapshot snapshot) {
+    snapshot.capture(this, executionTime);
+  }
+
+  /**
+   * Puts this controller back in the state saved in {@code snapshot}. This takes microseconds and
+   * does not allocate.
+   *
+   * @return whether or not the state was restored. It is not if the snapshot is from another
+   * controller, or bodies have been added or removed since it was taken.
+   */
+  public boolean restoreSnapshot(WorldSnapshot snapshot) {
+    if (!snapshot.restore(this)) {
+      return false;
+    }
+    executionTime = snapshot.getExecutionTime();
+    lastFrameTime = 0;
+    return true;
+  }
+
+  /**
+   * Keep the last {@code REWIND_BUFFER_SIZE} bytes of simulation state, and play backwards while
+   * {@code rewindKey} is held. Play resumes from wherever the key is released.
+   *
+   * @param rewindKey the {@code KeyCode} of the key to hold to rewind.
+   */
+  protected void enableRewind(KeyCode rewindKey) {
+    enableRewind(rewindKey, REWIND_BUFFER_SIZE);
+  }
+
+  /**
+   * Keep the last {@code size} bytes of simulation state, and play backwards while {@code
+   * rewindKey} is held. How many seconds fit depends on how many bodies the level has.
+   *
+   * @param rewindKey the {@code KeyCode} of the key to hold to rewind.
+   * @param size the bytes of state to keep.
+   */
+  protected void enableRewind(KeyCode rewindKey, int size) {
+    disableRewind();
+    this.rewindKey = rewindKey;
+    rewindBuffer = new RewindBuffer(this, size);
+    addTickListener(rewindBuffer);
+  }
+
+  /**
+   * Stop keeping state for rewinding and free the buffer.
+   */
+  protected void disableRewind() {
+    removeTickListener(rewindBuffer);
+    rewindBuffer = null;
+  }
+
+  /**
+   * @return the buffer of recent states, or null if rewinding is not enabled.
+   */
+  public RewindBuffer getRewindBuffer() {
+    return rewindBuffer;
+  }
+
+  /**
+   * Puts this controller back in the state it was in right after {@code init()}.
+   *
+   * @return whether or not the state was restored. It is not if bodies have been added or removed
+   * since, in which case the level has to be reloaded.
+   */
+  public boolean resetToStart() {
+    return restoreSnapshot(startSnapshot);
+  }
+
+  /**
+   * Start writing the state of every moving body to a file at the end of every execution cycle.
+   * Open the file with a {@code StateReplay} to scrub through the session.
+   *
+   * @param path the file to write. It is replaced if it exists.
+   */
+  public void startStateRecording(java.nio.file.Path path) {
+    stopStateRecording();
+    try {
+      stateRecorder = new StateRecorder(this, path);
+      addTickListener(stateRecorder);
+    } catch (IOException e) {
+      System.out.println("State recording " + path + " cannot be created.");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Stop writing state and close the file, if it is open.
+   */
+  public void stopStateRecording() {
+    if (stateRecorder != null) {
+      removeTickListener(stateRecorder);
+      try {
+        stateRecorder.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      stateRecorder = null;
+    }
+  }
+
+  /**
+   * @return the state recorder writing this controller's state, or null if there is none.
+   */
+  public StateRecorder getStateRecorder() {
+    return stateRecorder;
+  }
+
+  /**
+   * @return the {@code BotAgents} in this controller.
+   */
+  public List<BotAgent> getBots() {
+    return Collections.unmodifiableList(bots);
+  }
+
+  /**
+   * Releases everything this controller holds, so nothing outside of it keeps it reachable: the
+   * timeline is stopped, the key handlers are detached, the remote controller, network session,
+   * recordings, and rewind buffer are stopped, every body in the {@code World} is destroyed, and
+   * every node and fill is taken off the screen. The controller cannot be run again. This is run
+   * by the {@code SceneController} when a screen is removed.
+   */
+  public void dispose() {
+    if (disposed) {
+      return;
+    }
+    executionTimeline.stop();
+    executionTimeline.getKeyFrames().clear();
+    inputDispatcher.clear();
+    stopRemoteController();
+    stopNetworkSession();
+    stopRecording();
+    finishReplay();
+    stopStateRecording();
+    disableRewind();
+    stopWatchingLevelFiles();
+
+    for (Pair<String, Obstacle> obstacle : obstacles) {
+      destroyObstacle(obstacle.getValue());
+    }
+    for (int i = 0; i < bots.size(); i++) {
+      destroyObstacle(bots.get(i));
+    }
+    obstaclePool.destroyAll();
+    if (player != null) {
+      destroyObstacle(player);
+    }
+    flushDestructions();
+    //Destroy any bodies created outside of an Obstacle
+    Body body = world.getBodyList();
+    while (body != null) {
+      Body next = body.getNext();
+      world.destroyBody(body);
+      body = next;
+    }
+    world.setContactListener(null);
+
+    root.getChildren().clear();
+    root.setBackground(null);
+    player = null;
+    disposed = true;
+  }
+
+  /**
+   * @return whether or not {@code dispose()} has been run.
+   */
+  public boolean isDisposed() {
+    return disposed;
+  }
+
+  /**
+   * @return the JBox2D {@code World} this controller simulates.
+   */
+  public World getWorld() {
+    return world;
+  }
+
+  /**
+   * @return whether or not this controller was set up with {@code initializeHeadless()}.
+   */
+  public boolean isHeadless() {
+    return headless;
+  }
+
   /**
    * Resumes the timeline's execution.
    */
   public void resumeExecutionTimeline() {
+    lastFrameTime = 0;
     executionTimeline.play();
   }
 
@@ -382,6 +1277,28 @@ public abstract class GameController {
     executionTimeline.pause();
   }
 
+  /**
+   * @return whether or not the timeline is running this controller's execution cycles.
+   */
+  public boolean isExecutionTimelineRunning() {
+    return executionTimeline.getStatus() == Animation.Status.RUNNING;
+  }
+
+  /**
+   * @return the {@code InputDispatcher} that delivers key events to this controller's {@code
+   * KeyBinds}.
+   */
+  public InputDispatcher getInputDispatcher() {
+    return inputDispatcher;
+  }
+
+  /**
+   * @return the times from key events to the execution cycles that applied them.
+   */
+  public LatencyRecorder getInputLatency() {
+    return inputDispatcher.getInputLatency();
+  }
+
   /**
    * @return the time since the execution start.
    */
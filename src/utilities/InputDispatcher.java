@@ -0,0 +1,264 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.INPUT_LATENCY_SAMPLES;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import javafx.event.EventHandler;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import utilities.metadata.KeyBind;
+import utilities.metadata.LatencyRecorder;
+
+/**
+ * An {@code InputDispatcher} is created in any {@code GameController} by default. It owns the only
+ * pair of key event handlers on the {@code Scene} while its controller is active, and keeps a table
+ * of which keys are down.<br><br> Every press and release is queued with the {@code
+ * System.nanoTime()} it happened at. Once per physics step, {@code update()} delivers the queued
+ * transitions that belong to that step to the {@code KeyBinds} of those keys only, in the order
+ * they happened, and then runs the periodic method of the {@code KeyBinds} whose keys are held. The
+ * time from each transition to the step that applies it is kept in a {@code LatencyRecorder}.
+ * Delivered transitions can be written to an {@code InputRecording}, and key events from the
+ * {@code Scene} can be ignored while an {@code InputReplay} presses keys instead.
+ *
+ * @author Russell Newton
+ * @see KeyBind
+ **/
+public class InputDispatcher {
+
+  private final EnumMap<KeyCode, KeyState> keyStates = new EnumMap<>(KeyCode.class);
+  private final ArrayList<KeyState> heldKeys = new ArrayList<>();
+  private boolean isReplaying = false;
+  private final EventHandler<KeyEvent> pressHandler = (key) -> {
+    if (!isReplaying) {
+      press(key.getCode(), System.nanoTime());
+    }
+  };
+  private final EventHandler<KeyEvent> releaseHandler = (key) -> {
+    if (!isReplaying) {
+      release(key.getCode(), System.nanoTime());
+    }
+  };
+  private KeyState[] pendingKeys = new KeyState[16];
+  private boolean[] pendingPresses = new boolean[16];
+  private long[] pendingTimes = new long[16];
+  private int pendingStart = 0;
+  private int pendingCount = 0;
+  private final LatencyRecorder inputLatency = new LatencyRecorder(INPUT_LATENCY_SAMPLES);
+  private Scene scene;
+  private InputRecording recording;
+
+  /**
+   * Start receiving key events from {@code scene}. This is done by the {@code SceneController}
+   * when the controller is activated.
+   */
+  public void attach(Scene scene) {
+    detach();
+    this.scene = scene;
+    scene.addEventHandler(KeyEvent.KEY_PRESSED, pressHandler);
+    scene.addEventHandler(KeyEvent.KEY_RELEASED, releaseHandler);
+  }
+
+  /**
+   * Stop receiving key events. Any key still down is released, so no {@code KeyBind} stays held
+   * while its controller is inactive.
+   */
+  public void detach() {
+    if (scene != null) {
+      scene.removeEventHandler(KeyEvent.KEY_PRESSED, pressHandler);
+      scene.removeEventHandler(KeyEvent.KEY_RELEASED, releaseHandler);
+      scene = null;
+    }
+    for (KeyState keyState : keyStates.values()) {
+      release(keyState.keyCode, System.nanoTime());
+    }
+  }
+
+  /**
+   * Detach, and forget every {@code KeyBind}, held key, and queued transition.
+   */
+  public void clear() {
+    detach();
+    keyStates.clear();
+    heldKeys.clear();
+    Arrays.fill(pendingKeys, null);
+    pendingStart = 0;
+    pendingCount = 0;
+    recording = null;
+  }
+
+  /**
+   * Start dispatching to a {@code KeyBind}.
+   */
+  public void bind(KeyBind keyBind) {
+    getKeyState(keyBind.getKeyCode()).keyBinds.add(keyBind);
+  }
+
+  /**
+   * Stop dispatching to a {@code KeyBind}.
+   */
+  public void unbind(KeyBind keyBind) {
+    KeyState keyState = keyStates.get(keyBind.getKeyCode());
+    if (keyState != null) {
+      keyState.keyBinds.remove(keyBind);
+    }
+  }
+
+  /**
+   * Record that a key went down. Repeated presses of a key that is already down are ignored.
+   *
+   * @param keyCode the key.
+   * @param nanoTime the {@code System.nanoTime()} the key went down at.
+   */
+  public void press(KeyCode keyCode, long nanoTime) {
+    KeyState keyState = getKeyState(keyCode);
+    if (!keyState.isDown) {
+      keyState.isDown = true;
+      queue(keyState, true, nanoTime);
+    }
+  }
+
+  /**
+   * Record that a key went up.
+   *
+   * @param keyCode the key.
+   * @param nanoTime the {@code System.nanoTime()} the key went up at.
+   */
+  public void release(KeyCode keyCode, long nanoTime) {
+    KeyState keyState = keyStates.get(keyCode);
+    if (keyState != null && keyState.isDown) {
+      keyState.isDown = false;
+      queue(keyState, false, nanoTime);
+    }
+  }
+
+  /**
+   * Deliver every press and release recorded since the last update, then run the periodic method
+   * of every held {@code KeyBind}.
+   */
+  public void update() {
+    update(Long.MAX_VALUE);
+  }
+
+  /**
+   * Deliver the presses and releases that happened at or before {@code sampleTime}, then run the
+   * periodic method of every held {@code KeyBind}. Later transitions stay queued for a later step.
+   * This is run once per physics step.
+   *
+   * @param sampleTime the {@code System.nanoTime()} the current physics step ends at.
+   */
+  public void update(long sampleTime) {
+    long now = System.nanoTime();
+    while (pendingCount > 0 && pendingTimes[pendingStart] - sampleTime <= 0) {
+      KeyState keyState = pendingKeys[pendingStart];
+      boolean isPress = pendingPresses[pendingStart];
+      inputLatency.record(now - pendingTimes[pendingStart]);
+      pendingKeys[pendingStart] = null;
+      pendingStart = (pendingStart + 1) % pendingKeys.length;
+      pendingCount--;
+      if (recording != null) {
+        recording.add(keyState.keyCode, isPress);
+      }
+
+      if (isPress) {
+        heldKeys.add(keyState);
+        for (int j = 0; j < keyState.keyBinds.size(); j++) {
+          keyState.keyBinds.get(j).handlePress();
+        }
+      } else {
+        heldKeys.remove(keyState);
+        for (int j = 0; j < keyState.keyBinds.size(); j++) {
+          keyState.keyBinds.get(j).handleRelease();
+        }
+      }
+    }
+
+    for (int i = 0; i < heldKeys.size(); i++) {
+      KeyState keyState = heldKeys.get(i);
+      for (int j = 0; j < keyState.keyBinds.size(); j++) {
+        keyState.keyBinds.get(j).handleHold();
+      }
+    }
+  }
+
+  /**
+   * @return whether or not a key is down.
+   */
+  public boolean isDown(KeyCode keyCode) {
+    KeyState keyState = keyStates.get(keyCode);
+    return keyState != null && keyState.isDown;
+  }
+
+  private KeyState getKeyState(KeyCode keyCode) {
+    KeyState keyState = keyStates.get(keyCode);
+    if (keyState == null) {
+      keyState = new KeyState(keyCode);
+      keyStates.put(keyCode, keyState);
+    }
+    return keyState;
+  }
+
+  /**
+   * @return the times from key transitions to the physics steps that applied them.
+   */
+  public LatencyRecorder getInputLatency() {
+    return inputLatency;
+  }
+
+  /**
+   * Write every transition delivered from now on to {@code recording}, or stop if it is null.
+   */
+  void setRecording(InputRecording recording) {
+    this.recording = recording;
+  }
+
+  /**
+   * Ignore key events from the {@code Scene} while an {@code InputReplay} is pressing keys.
+   */
+  void setReplaying(boolean isReplaying) {
+    this.isReplaying = isReplaying;
+  }
+
+  /**
+   * Adds a transition to the end of the pending ring, growing it if it is full.
+   */
+  private void queue(KeyState keyState, boolean isPress, long nanoTime) {
+    if (pendingCount == pendingKeys.length) {
+      int capacity = pendingKeys.length * 2;
+      KeyState[] grownKeys = new KeyState[capacity];
+      boolean[] grownPresses = new boolean[capacity];
+      long[] grownTimes = new long[capacity];
+      for (int i = 0; i < pendingCount; i++) {
+        int index = (pendingStart + i) % pendingKeys.length;
+        grownKeys[i] = pendingKeys[index];
+        grownPresses[i] = pendingPresses[index];
+        grownTimes[i] = pendingTimes[index];
+      }
+      pendingKeys = grownKeys;
+      pendingPresses = grownPresses;
+      pendingTimes = grownTimes;
+      pendingStart = 0;
+    }
+    int index = (pendingStart + pendingCount) % pendingKeys.length;
+    pendingKeys[index] = keyState;
+    pendingPresses[index] = isPress;
+    pendingTimes[index] = nanoTime;
+    pendingCount++;
+  }
+
+  /**
+   * Whether a key is down, and the {@code KeyBinds} listening to it.
+   */
+  private static final class KeyState {
+
+    private final KeyCode keyCode;
+    private final ArrayList<KeyBind> keyBinds = new ArrayList<>();
+    private boolean isDown = false;
+
+    private KeyState(KeyCode keyCode) {
+      this.keyCode = keyCode;
+    }
+  }
+}
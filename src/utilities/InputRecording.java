@@ -0,0 +1,279 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.DEFER_CONTACT_EVENTS;
+import static utilities.metadata.StaticUtilities.FRAME_INTERVAL;
+import static utilities.metadata.StaticUtilities.GRAVITY_ACCELERATION;
+import static utilities.metadata.StaticUtilities.PHYSICS_SUB_STEPS;
+import static utilities.metadata.StaticUtilities.POSITION_ITERATIONS;
+import static utilities.metadata.StaticUtilities.VELOCITY_ITERATIONS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javafx.scene.input.KeyCode;
+import javafx.util.Pair;
+import org.jbox2d.dynamics.Body;
+
+/**
+ * An {@code InputRecording} is the list of key transitions a {@code GameController} applied, each
+ * tagged with the execution cycle it was applied in. Since nothing else in a cycle depends on the
+ * wall clock, feeding the same transitions into the same cycles of a fresh copy of the level
+ * reproduces the session exactly.<br><br> The recording also keeps hashes of the physics
+ * constants, the level as it was when recording started, and the state of every body when it
+ * stopped, so a replay can tell whether it started from the same place and ended in the same
+ * place.<br><br> On disk a recording is a short header, a table of the key names used, and one
+ * pair of varints per transition: the cycles since the previous transition, and the key index and
+ * direction.
+ *
+ * @author Russell Newton
+ * @see InputReplay
+ **/
+public class InputRecording implements TickListener {
+
+  private static final int MAGIC = 0x4B524543;
+  private static final short VERSION = 1;
+
+  private final String controllerClassName;
+  private final long configHash;
+  private final long levelHash;
+  private final ArrayList<KeyCode> keys = new ArrayList<>();
+  private int[] eventTicks = new int[64];
+  private int[] eventKeys = new int[64];
+  private int eventCount = 0;
+  private int tick = -1;
+  private int tickCount = 0;
+  private long finalStateHash = 0;
+  private boolean isFinished = false;
+
+  /**
+   * Start recording {@code controller} from its current state.
+   */
+  InputRecording(GameController controller) {
+    controllerClassName = controller.getClass().getName();
+    configHash = hashConfig(controller);
+    levelHash = hashLevel(controller);
+  }
+
+  private InputRecording(String controllerClassName, long configHash, long levelHash) {
+    this.controllerClassName = controllerClassName;
+    this.configHash = configHash;
+    this.levelHash = levelHash;
+  }
+
+  /**
+   * Advance to the next execution cycle. Run at the start of every cycle while recording.
+   */
+  @Override
+  public void beforeTick() {
+    tick++;
+  }
+
+  /**
+   * Record a key transition applied in the current execution cycle.
+   */
+  void add(KeyCode keyCode, boolean isPress) {
+    int key = keys.indexOf(keyCode);
+    if (key < 0) {
+      key = keys.size();
+      keys.add(keyCode);
+    }
+    if (eventCount == eventTicks.length) {
+      eventTicks = Arrays.copyOf(eventTicks, eventCount * 2);
+      eventKeys = Arrays.copyOf(eventKeys, eventCount * 2);
+    }
+    eventTicks[eventCount] = tick;
+    eventKeys[eventCount] = key << 1 | (isPress ? 1 : 0);
+    eventCount++;
+  }
+
+  /**
+   * Stop recording and keep the hash of the state {@code controller} ended in.
+   */
+  void finish(GameController controller) {
+    tickCount = tick + 1;
+    finalStateHash = hashState(controller);
+    isFinished = true;
+  }
+
+  /**
+   * Write this recording to a file.
+   */
+  public void save(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeUTF(controllerClassName);
+      out.writeLong(configHash);
+      out.writeLong(levelHash);
+      out.writeLong(finalStateHash);
+      out.writeInt(tickCount);
+      out.writeShort(keys.size());
+      for (KeyCode key : keys) {
+        out.writeUTF(key.name());
+      }
+      out.writeInt(eventCount);
+      int lastTick = 0;
+      for (int i = 0; i < eventCount; i++) {
+        writeVarInt(out, eventTicks[i] - lastTick);
+        writeVarInt(out, eventKeys[i]);
+        lastTick = eventTicks[i];
+      }
+    }
+  }
+
+  /**
+   * Read a recording written by {@code save()}.
+   *
+   * @throws IOException if the file cannot be read or is not a recording.
+   */
+  public static InputRecording load(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+        throw new IOException(path + " is not an input recording.");
+      }
+      InputRecording recording = new InputRecording(in.readUTF(), in.readLong(), in.readLong());
+      recording.finalStateHash = in.readLong();
+      recording.tickCount = in.readInt();
+      recording.isFinished = true;
+      int keyCount = in.readShort();
+      for (int i = 0; i < keyCount; i++) {
+        recording.keys.add(KeyCode.valueOf(in.readUTF()));
+      }
+      recording.eventCount = in.readInt();
+      recording.eventTicks = new int[Math.max(1, recording.eventCount)];
+      recording.eventKeys = new int[Math.max(1, recording.eventCount)];
+      int tick = 0;
+      for (int i = 0; i < recording.eventCount; i++) {
+        tick += readVarInt(in);
+        recording.eventTicks[i] = tick;
+        recording.eventKeys[i] = readVarInt(in);
+      }
+      return recording;
+    }
+  }
+
+  /**
+   * @return the name of the {@code GameController} class this was recorded in.
+   */
+  public String getControllerClassName() {
+    return controllerClassName;
+  }
+
+  /**
+   * @return the number of execution cycles recorded.
+   */
+  public int getTickCount() {
+    return isFinished ? tickCount : tick + 1;
+  }
+
+  /**
+   * @return the number of key transitions recorded.
+   */
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  int getEventTick(int event) {
+    return eventTicks[event];
+  }
+
+  KeyCode getEventKey(int event) {
+    return keys.get(eventKeys[event] >> 1);
+  }
+
+  boolean isEventPress(int event) {
+    return (eventKeys[event] & 1) != 0;
+  }
+
+  long getConfigHash() {
+    return configHash;
+  }
+
+  long getLevelHash() {
+    return levelHash;
+  }
+
+  long getFinalStateHash() {
+    return finalStateHash;
+  }
+
+  /**
+   * @return a hash of the controller class and the physics constants its cycles depend on.
+   */
+  static long hashConfig(GameController controller) {
+    long hash = hash(17, controller.getClass().getName().hashCode());
+    hash = hash(hash, Double.doubleToLongBits(FRAME_INTERVAL));
+    hash = hash(hash, Float.floatToIntBits(GRAVITY_ACCELERATION));
+    hash = hash(hash, VELOCITY_ITERATIONS);
+    hash = hash(hash, POSITION_ITERATIONS);
+    hash = hash(hash, PHYSICS_SUB_STEPS);
+    return hash(hash, DEFER_CONTACT_EVENTS ? 1 : 0);
+  }
+
+  /**
+   * @return a hash of the names of {@code controller's Obstacles} and the state of every body.
+   */
+  static long hashLevel(GameController controller) {
+    long hash = 17;
+    for (Pair<String, Obstacle> obstacle : controller.getObstacles()) {
+      hash = hash(hash, obstacle.getKey().hashCode());
+    }
+    return hash(hash, hashState(controller));
+  }
+
+  /**
+   * @return a hash of the type, position, angle, and velocities of every body in {@code
+   * controller's World}, in the order the {@code World} keeps them.
+   */
+  static long hashState(GameController controller) {
+    long hash = 17;
+    for (Body body = controller.world.getBodyList(); body != null; body = body.getNext()) {
+      hash = hash(hash, body.getType().ordinal());
+      hash = hash(hash, Float.floatToIntBits(body.getPosition().x));
+      hash = hash(hash, Float.floatToIntBits(body.getPosition().y));
+      hash = hash(hash, Float.floatToIntBits(body.getAngle()));
+      hash = hash(hash, Float.floatToIntBits(body.getLinearVelocity().x));
+      hash = hash(hash, Float.floatToIntBits(body.getLinearVelocity().y));
+      hash = hash(hash, Float.floatToIntBits(body.getAngularVelocity()));
+    }
+    return hash;
+  }
+
+  private static long hash(long hash, long value) {
+    return (hash ^ value) * 0x100000001B3L;
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("InputRecording:[%s, %d ticks, %d key events]", controllerClassName,
+        getTickCount(), eventCount);
+  }
+}
@@ -0,0 +1,58 @@
+package utilities;
+
+/**
+ * An {@code InputReplay} feeds an {@code InputRecording} back into a {@code GameController's
+ * InputDispatcher} in place of real key events. Each transition is pressed or released at the
+ * start of the execution cycle it was recorded in, so it is applied in that same cycle.
+ *
+ * @author Russell Newton
+ * @see InputRecording
+ **/
+public class InputReplay {
+
+  private final InputRecording recording;
+  private int tick = -1;
+  private int nextEvent = 0;
+
+  InputReplay(InputRecording recording) {
+    this.recording = recording;
+  }
+
+  /**
+   * Advance to the next execution cycle and queue the transitions recorded in it.
+   *
+   * @param sampleTime the time the cycle samples input at. Transitions are queued at this time.
+   */
+  void feed(InputDispatcher inputDispatcher, long sampleTime) {
+    tick++;
+    while (nextEvent < recording.getEventCount() && recording.getEventTick(nextEvent) <= tick) {
+      if (recording.isEventPress(nextEvent)) {
+        inputDispatcher.press(recording.getEventKey(nextEvent), sampleTime);
+      } else {
+        inputDispatcher.release(recording.getEventKey(nextEvent), sampleTime);
+      }
+      nextEvent++;
+    }
+  }
+
+  /**
+   * @return whether or not every recorded execution cycle has been replayed.
+   */
+  public boolean isFinished() {
+    return tick + 1 >= recording.getTickCount();
+  }
+
+  /**
+   * @return the number of execution cycles replayed so far.
+   */
+  public int getTicksReplayed() {
+    return tick + 1;
+  }
+
+  /**
+   * @return the recording being replayed.
+   */
+  public InputRecording getRecording() {
+    return recording;
+  }
+}
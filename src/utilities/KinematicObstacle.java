@@ -1,15 +1,19 @@
 package utilities;
 
 import static utilities.metadata.StaticUtilities.DEFAULT_OBSTACLE_FILL;
-import static utilities.metadata.StaticUtilities.FRAME_INTERVAL;
+import static utilities.metadata.StaticUtilities.STEP_INTERVAL;
 
-import java.util.ListIterator;
+import java.util.ArrayList;
 import javafx.scene.paint.Paint;
 import org.jbox2d.common.Vec2;
 import org.waltonrobotics.metadata.PathData;
 import org.waltonrobotics.motion.Path;
 
 /**
+ * A {@code KinematicObstacle} moves along a {@code Path}, starting over when it reaches the end.
+ * Its place on the path is kept as an index into the path's points, so it can be saved and
+ * restored by a {@code WorldSnapshot}.
+ *
  * @author Russell Newton
  * @see utilities.Obstacle
  * @see org.waltonrobotics.motion.Path
@@ -18,12 +22,13 @@ public class KinematicObstacle extends Obstacle {
 
   private final float speed;
   private final Path path;
+  private final ArrayList<PathData> pathData;
   private final Vec2 velocityVector = new Vec2(0, 0);
   private final Vec2 positionVector = new Vec2(0, 0);
   private double startTime;
-  private ListIterator<PathData> pdIterator;
-  private PathData pdPrevious;
-  private PathData pdNext;
+  private int pathIndex = 0;
+  private int previousIndex = -1;
+  private int nextIndex = -1;
 
   /**
    * Create a {@code KinematicObstacle}. Like an {@code Obstacle}, with some new parameters.
@@ -36,8 +41,8 @@ public class KinematicObstacle extends Obstacle {
     super(controller, startX, startY, width, height, angle, fill);
     this.speed = speed;
     this.path = path;
+    pathData = new ArrayList<>(path.getPathData());
     startTime = controller.getExecutionTime();
-    pdIterator = path.getPathData().listIterator();
   }
 
   /**
@@ -58,8 +63,8 @@ public class KinematicObstacle extends Obstacle {
         staticObstacle.fill);
     this.speed = speed;
     this.path = path;
+    pathData = new ArrayList<>(path.getPathData());
     startTime = staticObstacle.controller.getExecutionTime();
-    pdIterator = path.getPathData().listIterator();
   }
 
   /**
@@ -88,10 +93,10 @@ public class KinematicObstacle extends Obstacle {
   @Override
   public void update() {
     super.update();
-    if (pdIterator.hasNext()) {
+    if (pathIndex < pathData.size()) {
       interpolate();
     } else {
-      pdIterator = path.getPathData().listIterator();
+      pathIndex = 0;
     }
     body.setLinearVelocity(velocityVector);
   }
@@ -100,23 +105,25 @@ public class KinematicObstacle extends Obstacle {
    * Move the {@code KinematicObstacle} along {@code path}.
    */
   private void interpolate() {
-    if (pdNext == null) {
-      pdNext = pdIterator.next();
+    if (nextIndex < 0) {
+      nextIndex = pathIndex++;
     }
     double currentTime = controller.getExecutionTime() - startTime;
-    while (currentTime > pdNext.getTime()) {
-      if (pdIterator.hasNext()) {
-        pdPrevious = pdNext;
-        pdNext = pdIterator.next();
+    while (currentTime > pathData.get(nextIndex).getTime()) {
+      if (pathIndex < pathData.size()) {
+        previousIndex = nextIndex;
+        nextIndex = pathIndex++;
       } else {
-        pdPrevious = pdNext = null;
-        pdIterator = path.getPathData().listIterator();
+        previousIndex = nextIndex = -1;
+        pathIndex = 0;
         startTime = controller.getExecutionTime();
         velocityVector.set(0, 0);
         return;
       }
     }
 
+    PathData pdPrevious = pathData.get(previousIndex);
+    PathData pdNext = pathData.get(nextIndex);
     double timePrevious = pdPrevious.getTime();
     double timeNext = pdNext.getTime();
     double dTime = timeNext - timePrevious;
@@ -140,6 +147,37 @@ public class KinematicObstacle extends Obstacle {
 
 //    System.out.println(String.format("%f %f %f", timePrevious, currentTime, timeNext));
     velocityVector
-        .set((float) (dx / (FRAME_INTERVAL / 1000)), (float) (dy / (FRAME_INTERVAL / 1000)));
+        .set((float) (dx / (STEP_INTERVAL / 1000)), (float) (dy / (STEP_INTERVAL / 1000)));
+  }
+
+  @Override
+  protected int getStateSize() {
+    return super.getStateSize() + 8;
+  }
+
+  @Override
+  protected void saveState(double[] state, int offset) {
+    super.saveState(state, offset);
+    offset += super.getStateSize();
+    state[offset] = startTime;
+    state[offset + 1] = pathIndex;
+    state[offset + 2] = previousIndex;
+    state[offset + 3] = nextIndex;
+    state[offset + 4] = positionVector.x;
+    state[offset + 5] = positionVector.y;
+    state[offset + 6] = velocityVector.x;
+    state[offset + 7] = velocityVector.y;
+  }
+
+  @Override
+  protected void restoreState(double[] state, int offset) {
+    super.restoreState(state, offset);
+    offset += super.getStateSize();
+    startTime = state[offset];
+    pathIndex = (int) state[offset + 1];
+    previousIndex = (int) state[offset + 2];
+    nextIndex = (int) state[offset + 3];
+    positionVector.set((float) state[offset + 4], (float) state[offset + 5]);
+    velocityVector.set((float) state[offset + 6], (float) state[offset + 7]);
   }
 }
@@ -0,0 +1,99 @@
+package utilities;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import utilities.metadata.AssetBundle;
+
+/**
+ * A {@code LevelWatcher} watches the obstacle JSON files a {@code GameController} was built from,
+ * in the {@code src} folder, and queues every file that changes. The controller reloads the queued
+ * files between physics steps, so the simulation keeps running while levels are edited. A file
+ * written several times in a row is only queued once until it is reloaded.
+ *
+ * @author Russell Newton
+ * @see GameController#watchLevelFiles()
+ **/
+public class LevelWatcher implements Closeable {
+
+  private final WatchService watchService;
+  private final HashMap<Path, String> assetNames = new HashMap<>();
+  private final LinkedHashSet<String> changed = new LinkedHashSet<>();
+  private final Thread thread;
+
+  /**
+   * Start watching {@code assetNames}, the names the files were loaded by, such as {@code
+   * /assets/obstacles/Obstacles.json}. Files that are not in the {@code src} folder are skipped.
+   *
+   * @throws IOException if the files cannot be watched.
+   */
+  LevelWatcher(Collection<String> assetNames) throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+    for (String assetName : assetNames) {
+      Path file = AssetBundle.getSourcePath(assetName).toAbsolutePath();
+      if (Files.isRegularFile(file)) {
+        this.assetNames.put(file, assetName);
+        file.getParent().register(watchService, ENTRY_MODIFY, ENTRY_CREATE);
+      } else {
+        System.out.println("Level file " + assetName + " is not in src and cannot be watched.");
+      }
+    }
+    thread = new Thread(this::watch, "Level Watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        Path folder = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.context() instanceof Path) {
+            String assetName = assetNames.get(folder.resolve((Path) event.context()));
+            if (assetName != null) {
+              synchronized (changed) {
+                changed.add(assetName);
+              }
+            }
+          }
+        }
+        key.reset();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      //Stopped
+    }
+  }
+
+  /**
+   * Moves the names of the files changed since the last poll into {@code out}.
+   */
+  void pollChanged(Collection<String> out) {
+    synchronized (changed) {
+      out.addAll(changed);
+      changed.clear();
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    thread.interrupt();
+  }
+}
@@ -0,0 +1,364 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.INPUT_LATENCY_SAMPLES;
+import static utilities.metadata.StaticUtilities.NETWORK_INTERPOLATION_DELAY;
+import static utilities.metadata.StaticUtilities.NETWORK_MAX_PACKET_SIZE;
+import static utilities.metadata.StaticUtilities.NETWORK_PREDICTION_TOLERANCE;
+import static utilities.metadata.StaticUtilities.NETWORK_SNAPSHOT_HISTORY;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import utilities.metadata.LatencyRecorder;
+
+/**
+ * A {@code NetworkClient} plays a level hosted by a {@code NetworkServer}. It runs the same level
+ * locally and sends the {@code Player's} actions every tick.<br><br> The {@code Player} is
+ * predicted: it moves at once from local input, and its position at the end of each tick is kept
+ * under that tick's input. A snapshot says which input the server applied in the tick it was taken,
+ * and the server's position is compared with the one kept for that input. If they differ by more
+ * than {@code NETWORK_PREDICTION_TOLERANCE}, the {@code Player} and every later prediction are
+ * shifted by the difference. Snapshots split into several packets are used once every packet has
+ * arrived. Every other networked body is drawn {@code
+ * NETWORK_INTERPOLATION_DELAY} server ticks in the past, between the two snapshots around that
+ * time.
+ *
+ * @author Russell Newton
+ * @see NetworkServer
+ **/
+public class NetworkClient implements NetworkSession {
+
+  private final GameController controller;
+  private final DatagramChannel channel;
+  private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NETWORK_MAX_PACKET_SIZE);
+  private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(16);
+  private final NetworkSnapshot[] history = new NetworkSnapshot[NETWORK_SNAPSHOT_HISTORY];
+  private final long[] inputSendTimes = new long[INPUT_LATENCY_SAMPLES];
+  private final float[] predictedX = new float[INPUT_LATENCY_SAMPLES];
+  private final float[] predictedY = new float[INPUT_LATENCY_SAMPLES];
+  private final ArrayList<Obstacle> entities = new ArrayList<>();
+  private final LatencyRecorder inputLatency = new LatencyRecorder(INPUT_LATENCY_SAMPLES);
+  private final Vec2 olderPosition = new Vec2();
+  private final Vec2 newerPosition = new Vec2();
+  private final Vec2 olderVelocity = new Vec2();
+  private final Vec2 newerVelocity = new Vec2();
+  private final Vec2 correction = new Vec2();
+  private final long connectTime = System.nanoTime();
+  private int levelEntityCount = -1;
+  private int ownEntity = -1;
+  private int inputSequence = 0;
+  private int acknowledgedInput = 0;
+  private int latestSequence = 0;
+  private int assemblingSequence = 0;
+  private int assembledRows = 0;
+  private int latestServerTick = 0;
+  private int ticksSinceSnapshot = 0;
+  private long bytesSent = 0;
+  private long bytesReceived = 0;
+  private long snapshotsReceived = 0;
+  private long reconciled = 0;
+  private long corrections = 0;
+  private float lastPredictionError = 0;
+  private double correctionDistance = 0;
+
+  /**
+   * Connect to a server.
+   *
+   * @param host the server's host name or address.
+   * @param port the server's UDP port.
+   * @throws IOException if the socket cannot be opened.
+   */
+  public NetworkClient(GameController controller, String host, int port) throws IOException {
+    this.controller = controller;
+    for (int i = 0; i < history.length; i++) {
+      history[i] = new NetworkSnapshot();
+    }
+    channel = DatagramChannel.open();
+    channel.connect(new InetSocketAddress(host, port));
+    channel.configureBlocking(false);
+  }
+
+  @Override
+  public void beforeTick() {
+    if (levelEntityCount < 0) {
+      NetworkServer.addLevelEntities(controller, entities);
+      levelEntityCount = entities.size();
+    }
+    try {
+      receive();
+      sendInput();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Override
+  public void afterTick() {
+    if (inputSequence > 0) {
+      int slot = inputSequence % predictedX.length;
+      Vec2 position = controller.player.body.getPosition();
+      predictedX[slot] = position.x;
+      predictedY[slot] = position.y;
+    }
+    ticksSinceSnapshot++;
+    if (latestSequence > 0) {
+      interpolate(latestServerTick + ticksSinceSnapshot - NETWORK_INTERPOLATION_DELAY);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (int i = levelEntityCount; i < entities.size(); i++) {
+      removeProxy(i);
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void sendInput() throws IOException {
+    inputSequence++;
+    inputSendTimes[inputSequence % inputSendTimes.length] = System.nanoTime();
+
+    sendBuffer.clear();
+    sendBuffer.put(NetworkServer.INPUT);
+    sendBuffer.putInt(inputSequence);
+    sendBuffer.putInt(latestSequence);
+    sendBuffer.put((byte) controller.player.getActions());
+    sendBuffer.flip();
+    bytesSent += channel.write(sendBuffer);
+  }
+
+  private void receive() throws IOException {
+    while (true) {
+      receiveBuffer.clear();
+      if (channel.receive(receiveBuffer) == null) {
+        return;
+      }
+      receiveBuffer.flip();
+      bytesReceived += receiveBuffer.limit();
+      if (receiveBuffer.get() != NetworkServer.SNAPSHOT) {
+        continue;
+      }
+      int sequence = receiveBuffer.getInt();
+      int baseSequence = receiveBuffer.getInt();
+      int serverTick = receiveBuffer.getInt();
+      int lastInput = receiveBuffer.getInt();
+      int entity = receiveBuffer.getShort();
+      int count = receiveBuffer.getShort();
+      int firstRow = receiveBuffer.getShort();
+      int endRow = receiveBuffer.getShort();
+      if (sequence <= latestSequence || sequence < assemblingSequence) {
+        continue;
+      }
+      NetworkSnapshot snapshot = history[sequence % history.length];
+      if (sequence != assemblingSequence) {
+        NetworkSnapshot base = null;
+        if (baseSequence != 0) {
+          base = history[baseSequence % history.length];
+          if (base.sequence != baseSequence) {
+            continue;
+          }
+        }
+        snapshot.reset(base, count);
+        snapshot.sequence = 0;
+        assemblingSequence = sequence;
+        assembledRows = 0;
+      }
+      snapshot.readDelta(receiveBuffer, firstRow);
+      assembledRows += endRow - firstRow;
+      if (assembledRows < count) {
+        continue;
+      }
+
+      snapshot.sequence = sequence;
+      snapshot.serverTick = serverTick;
+      snapshot.time = System.nanoTime();
+      latestSequence = sequence;
+      latestServerTick = serverTick;
+      ticksSinceSnapshot = 0;
+      snapshotsReceived++;
+      ownEntity = entity;
+
+      if (lastInput > acknowledgedInput && inputSequence - lastInput < predictedX.length) {
+        acknowledgedInput = lastInput;
+        inputLatency.record(snapshot.time - inputSendTimes[lastInput % inputSendTimes.length]);
+        reconcile(snapshot, lastInput);
+      }
+    }
+  }
+
+  /**
+   * Shifts the {@code Player}, and the predictions made after {@code input}, by the difference
+   * between where the server put it in the tick it applied {@code input} and where it was predicted
+   * to be at the end of that tick.
+   */
+  private void reconcile(NetworkSnapshot snapshot, int input) {
+    if (!snapshot.isPresent(ownEntity)) {
+      return;
+    }
+    reconciled++;
+    int slot = input % predictedX.length;
+    snapshot.getPosition(ownEntity, newerPosition);
+    correction.set(newerPosition.x - predictedX[slot], newerPosition.y - predictedY[slot]);
+    float distance = correction.length();
+    lastPredictionError = distance;
+    if (distance > NETWORK_PREDICTION_TOLERANCE) {
+      for (int i = input + 1; i <= inputSequence; i++) {
+        predictedX[i % predictedX.length] += correction.x;
+        predictedY[i % predictedY.length] += correction.y;
+      }
+      Body body = controller.player.body;
+      correction.addLocal(body.getPosition());
+      body.setTransform(correction, body.getAngle());
+      corrections++;
+      correctionDistance += distance;
+    }
+  }
+
+  /**
+   * Moves every networked body except the {@code Player} to where it was at {@code renderTick}.
+   */
+  private void interpolate(int renderTick) {
+    NetworkSnapshot older = null;
+    NetworkSnapshot newer = null;
+    for (NetworkSnapshot snapshot : history) {
+      if (snapshot.sequence == 0 || latestSequence - snapshot.sequence >= history.length) {
+        continue;
+      }
+      if (snapshot.serverTick <= renderTick
+          && (older == null || snapshot.serverTick > older.serverTick)) {
+        older = snapshot;
+      }
+      if (snapshot.serverTick >= renderTick
+          && (newer == null || snapshot.serverTick < newer.serverTick)) {
+        newer = snapshot;
+      }
+    }
+    if (older == null) {
+      older = newer;
+    }
+    if (newer == null) {
+      newer = older;
+    }
+    float t = newer.serverTick == older.serverTick ? 1
+        : (float) (renderTick - older.serverTick) / (newer.serverTick - older.serverTick);
+
+    for (int i = 0; i < newer.getCount(); i++) {
+      if (i == ownEntity) {
+        continue;
+      }
+      if (!newer.isPresent(i)) {
+        if (i >= levelEntityCount) {
+          removeProxy(i);
+        }
+        continue;
+      }
+      Obstacle entity = getEntity(i, newer);
+      newer.getPosition(i, newerPosition);
+      newer.getVelocity(i, newerVelocity);
+      if (older.isPresent(i)) {
+        older.getPosition(i, olderPosition);
+        older.getVelocity(i, olderVelocity);
+        newerPosition.set(olderPosition.x + (newerPosition.x - olderPosition.x) * t,
+            olderPosition.y + (newerPosition.y - olderPosition.y) * t);
+        newerVelocity.set(olderVelocity.x + (newerVelocity.x - olderVelocity.x) * t,
+            olderVelocity.y + (newerVelocity.y - olderVelocity.y) * t);
+      }
+      entity.body.setTransform(newerPosition, newer.getAngle(i));
+      entity.body.setLinearVelocity(newerVelocity);
+    }
+  }
+
+  /**
+   * @return the local body for a networked body, creating a stand-in for a remote player if
+   * needed.
+   */
+  private Obstacle getEntity(int index, NetworkSnapshot snapshot) {
+    while (entities.size() <= index) {
+      entities.add(null);
+    }
+    Obstacle entity = entities.get(index);
+    if (entity == null) {
+      snapshot.getPosition(index, newerPosition);
+      entity = controller.addBot((agent, updateCount) -> 0, newerPosition.x, newerPosition.y);
+      entities.set(index, entity);
+    }
+    return entity;
+  }
+
+  private void removeProxy(int index) {
+    if (index < entities.size() && entities.get(index) != null) {
+      controller.removeBot((BotAgent) entities.get(index));
+      entities.set(index, null);
+    }
+  }
+
+  /**
+   * @return the bytes per second received from the server since connecting.
+   */
+  public double getBytesReceivedPerSecond() {
+    return bytesReceived / getSecondsConnected();
+  }
+
+  /**
+   * @return the bytes per second sent to the server since connecting.
+   */
+  public double getBytesSentPerSecond() {
+    return bytesSent / getSecondsConnected();
+  }
+
+  /**
+   * @return the times from sending an input to receiving the snapshot that includes it.
+   */
+  public LatencyRecorder getInputLatency() {
+    return inputLatency;
+  }
+
+  /**
+   * @return the number of times the predicted {@code Player} was corrected.
+   */
+  public long getCorrectionCount() {
+    return corrections;
+  }
+
+  /**
+   * @return the fraction of acknowledged inputs whose prediction was corrected.
+   */
+  public double getCorrectionRate() {
+    return reconciled == 0 ? 0 : (double) corrections / reconciled;
+  }
+
+  /**
+   * @return the distance between the server's position and the prediction for the last
+   * acknowledged input.
+   */
+  public float getLastPredictionError() {
+    return lastPredictionError;
+  }
+
+  /**
+   * @return whether or not a snapshot has been received.
+   */
+  public boolean isConnected() {
+    return latestSequence > 0;
+  }
+
+  private double getSecondsConnected() {
+    return Math.max(1e-9, (System.nanoTime() - connectTime) / 1e9);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("NetworkClient:[body:%d, snapshots:%d, down %.0f B/s, up %.0f B/s, "
+            + "corrections:%d (mean %.3f), input %s]", ownEntity, snapshotsReceived,
+        getBytesReceivedPerSecond(), getBytesSentPerSecond(), corrections,
+        corrections == 0 ? 0 : correctionDistance / corrections, inputLatency);
+  }
+}
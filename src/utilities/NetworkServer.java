@@ -0,0 +1,341 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_START_X;
+import static utilities.metadata.StaticUtilities.DEFAULT_PLAYER_START_Y;
+import static utilities.metadata.StaticUtilities.INPUT_LATENCY_SAMPLES;
+import static utilities.metadata.StaticUtilities.NETWORK_CLIENT_TIMEOUT;
+import static utilities.metadata.StaticUtilities.NETWORK_MAX_CLIENTS;
+import static utilities.metadata.StaticUtilities.NETWORK_MAX_PACKET_SIZE;
+import static utilities.metadata.StaticUtilities.NETWORK_MAX_QUEUED_INPUTS;
+import static utilities.metadata.StaticUtilities.NETWORK_SNAPSHOT_HISTORY;
+import static utilities.metadata.StaticUtilities.NETWORK_SNAPSHOT_INTERVAL;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javafx.util.Pair;
+import org.jbox2d.dynamics.BodyType;
+import utilities.metadata.CollisionLayer;
+import utilities.metadata.LatencyRecorder;
+
+/**
+ * A {@code NetworkServer} makes a {@code GameController} the authority for a multiplayer level.
+ * Each client that sends input gets its own {@code BotAgent}. Inputs are queued per client and one
+ * is applied each tick, so a press and release sent in back-to-back ticks both reach the {@code
+ * BotAgent}. A client that stops sending keeps its last actions, and one that runs ahead loses its
+ * oldest inputs once {@code NETWORK_MAX_QUEUED_INPUTS} are waiting.<br><br> Every {@code
+ * NETWORK_SNAPSHOT_INTERVAL} ticks the server captures a {@code NetworkSnapshot} of every moving
+ * body and sends each client only what changed since the last snapshot that client acknowledged,
+ * along with the input applied in that tick, if any. Deltas are split into as many packets as
+ * needed to stay under {@code NETWORK_MAX_PACKET_SIZE}. The networked bodies are, in order: the
+ * non-static {@code Obstacles}, the bots present at the first tick, the host {@code Player}, then
+ * one {@code BotAgent} per client. A client that falls too far behind gets a full snapshot.
+ *
+ * @author Russell Newton
+ * @see NetworkClient
+ **/
+public class NetworkServer implements NetworkSession {
+
+  static final byte INPUT = 1;
+  static final byte SNAPSHOT = 2;
+
+  private final GameController controller;
+  private final DatagramChannel channel;
+  private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NETWORK_MAX_PACKET_SIZE);
+  private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NETWORK_MAX_PACKET_SIZE);
+  private final NetworkSnapshot[] history = new NetworkSnapshot[NETWORK_SNAPSHOT_HISTORY];
+  private final ArrayList<Obstacle> entities = new ArrayList<>();
+  private final LinkedHashMap<SocketAddress, Connection> connections = new LinkedHashMap<>();
+  private boolean hasStarted = false;
+  private int tick = 0;
+  private int snapshotSequence = 0;
+
+  /**
+   * Start listening for clients.
+   *
+   * @param port the UDP port to listen on.
+   * @throws IOException if the port cannot be bound.
+   */
+  public NetworkServer(GameController controller, int port) throws IOException {
+    this.controller = controller;
+    for (int i = 0; i < history.length; i++) {
+      history[i] = new NetworkSnapshot();
+    }
+    channel = DatagramChannel.open();
+    channel.bind(new InetSocketAddress(port));
+    channel.configureBlocking(false);
+    System.out.println("Server listening on port " + port);
+  }
+
+  @Override
+  public void beforeTick() {
+    if (!hasStarted) {
+      addLevelEntities(controller, entities);
+      entities.add(controller.player);
+      hasStarted = true;
+    }
+    try {
+      receive();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    dropSilentClients();
+    for (Connection connection : connections.values()) {
+      connection.applyNextInput();
+    }
+  }
+
+  @Override
+  public void afterTick() {
+    tick++;
+    if (tick % NETWORK_SNAPSHOT_INTERVAL != 0) {
+      return;
+    }
+    snapshotSequence++;
+    NetworkSnapshot snapshot = history[snapshotSequence % history.length];
+    snapshot.capture(entities);
+    snapshot.sequence = snapshotSequence;
+    snapshot.serverTick = tick;
+    snapshot.time = System.nanoTime();
+
+    for (Connection connection : connections.values()) {
+      try {
+        send(connection, snapshot);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Connection connection : connections.values()) {
+      controller.removeBot(connection.agent);
+    }
+    connections.clear();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Adds the bodies every copy of the level has in the same order: the non-static {@code
+   * Obstacles}, then the bots.
+   */
+  static void addLevelEntities(GameController controller, List<Obstacle> entities) {
+    for (Pair<String, Obstacle> obstacle : controller.getObstacles()) {
+      if (obstacle.getValue().body.getType() != BodyType.STATIC) {
+        entities.add(obstacle.getValue());
+      }
+    }
+    entities.addAll(controller.getBots());
+  }
+
+  private void receive() throws IOException {
+    while (true) {
+      receiveBuffer.clear();
+      SocketAddress address = channel.receive(receiveBuffer);
+      if (address == null) {
+        return;
+      }
+      receiveBuffer.flip();
+      if (receiveBuffer.remaining() < 10 || receiveBuffer.get() != INPUT) {
+        continue;
+      }
+      Connection connection = connections.get(address);
+      if (connection == null) {
+        connection = join(address);
+        if (connection == null) {
+          continue;
+        }
+      }
+      connection.bytesReceived += receiveBuffer.limit();
+      connection.lastHeardTime = System.nanoTime();
+
+      int inputSequence = receiveBuffer.getInt();
+      int acknowledged = receiveBuffer.getInt();
+      int actions = receiveBuffer.get();
+      connection.queueInput(inputSequence, actions);
+      if (acknowledged > connection.acknowledged) {
+        connection.acknowledged = acknowledged;
+        NetworkSnapshot snapshot = history[acknowledged % history.length];
+        if (snapshot.sequence == acknowledged) {
+          connection.roundTrips.record(System.nanoTime() - snapshot.time);
+        }
+      }
+    }
+  }
+
+  private Connection join(SocketAddress address) {
+    if (connections.size() >= NETWORK_MAX_CLIENTS) {
+      return null;
+    }
+    Connection connection = new Connection(address);
+    connection.agent = controller.addBot((agent, updateCount) -> connection.actions,
+        DEFAULT_PLAYER_START_X, DEFAULT_PLAYER_START_Y);
+    connection.agent.setCollisionLayer(CollisionLayer.PLAYER);
+    connection.entity = entities.size();
+    entities.add(connection.agent);
+    connections.put(address, connection);
+    System.out.println("Client " + address + " joined as body " + connection.entity);
+    return connection;
+  }
+
+  private void dropSilentClients() {
+    long now = System.nanoTime();
+    Iterator<Connection> iterator = connections.values().iterator();
+    while (iterator.hasNext()) {
+      Connection connection = iterator.next();
+      if (now - connection.lastHeardTime > NETWORK_CLIENT_TIMEOUT * 1_000_000L) {
+        iterator.remove();
+        controller.removeBot(connection.agent);
+        entities.set(connection.entity, null);
+        System.out.println("Client " + connection.address + " timed out");
+      }
+    }
+  }
+
+  private void send(Connection connection, NetworkSnapshot snapshot) throws IOException {
+    NetworkSnapshot base = history[connection.acknowledged % history.length];
+    if (connection.acknowledged == 0 || base.sequence != connection.acknowledged) {
+      base = null;
+    }
+
+    int row = 0;
+    do {
+      sendBuffer.clear();
+      sendBuffer.put(SNAPSHOT);
+      sendBuffer.putInt(snapshot.sequence);
+      sendBuffer.putInt(base == null ? 0 : base.sequence);
+      sendBuffer.putInt(snapshot.serverTick);
+      sendBuffer.putInt(connection.appliedInput);
+      sendBuffer.putShort((short) connection.entity);
+      sendBuffer.putShort((short) snapshot.getCount());
+      sendBuffer.putShort((short) row);
+      int endRowPosition = sendBuffer.position();
+      sendBuffer.putShort((short) 0);
+      row = snapshot.writeDelta(sendBuffer, base, row);
+      sendBuffer.putShort(endRowPosition, (short) row);
+      sendBuffer.flip();
+      connection.bytesSent += channel.send(sendBuffer, connection.address);
+    } while (row < snapshot.getCount());
+  }
+
+  /**
+   * @return the number of connected clients.
+   */
+  public int getClientCount() {
+    return connections.size();
+  }
+
+  /**
+   * @return the {@code BotAgent} of each client, in join order.
+   */
+  public List<BotAgent> getClientAgents() {
+    ArrayList<BotAgent> agents = new ArrayList<>();
+    for (Connection connection : connections.values()) {
+      agents.add(connection.agent);
+    }
+    return agents;
+  }
+
+  /**
+   * @return the bytes per second sent to each client since it joined, in join order.
+   */
+  public double[] getBytesPerSecondPerClient() {
+    double[] rates = new double[connections.size()];
+    int i = 0;
+    for (Connection connection : connections.values()) {
+      rates[i++] = connection.getBytesPerSecond();
+    }
+    return rates;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder toString = new StringBuilder(String.format("NetworkServer:[tick:%d, "
+        + "snapshots:%d, clients:%d]%n", tick, snapshotSequence, connections.size()));
+    for (Connection connection : connections.values()) {
+      toString.append(String.format("  %s: down %.0f B/s, up %.0f B/s, round trip %s%n",
+          connection.address, connection.getBytesPerSecond(),
+          connection.bytesReceived / connection.getSecondsConnected(), connection.roundTrips));
+    }
+    return toString.toString();
+  }
+
+  /**
+   * What the server knows about one client.
+   */
+  private static final class Connection {
+
+    private final SocketAddress address;
+    private final long joinTime = System.nanoTime();
+    private final LatencyRecorder roundTrips = new LatencyRecorder(INPUT_LATENCY_SAMPLES);
+    private BotAgent agent;
+    private int entity;
+    private final int[] queuedSequences = new int[NETWORK_MAX_QUEUED_INPUTS];
+    private final int[] queuedActions = new int[NETWORK_MAX_QUEUED_INPUTS];
+    private int queueStart = 0;
+    private int queueSize = 0;
+    private int lastQueuedInput = 0;
+    private int actions = 0;
+    private int appliedInput = 0;
+    private int acknowledged = 0;
+    private long lastHeardTime = joinTime;
+    private long bytesSent = 0;
+    private long bytesReceived = 0;
+
+    private Connection(SocketAddress address) {
+      this.address = address;
+    }
+
+    /**
+     * Queues an input, skipping any older than the last one queued. The oldest input is dropped if
+     * the queue is full.
+     */
+    private void queueInput(int sequence, int actions) {
+      if (sequence <= lastQueuedInput) {
+        return;
+      }
+      lastQueuedInput = sequence;
+      if (queueSize == queuedSequences.length) {
+        queueStart = (queueStart + 1) % queuedSequences.length;
+        queueSize--;
+      }
+      int slot = (queueStart + queueSize) % queuedSequences.length;
+      queuedSequences[slot] = sequence;
+      queuedActions[slot] = actions;
+      queueSize++;
+    }
+
+    /**
+     * Applies the oldest queued input for this tick, or keeps the current actions if there is none.
+     */
+    private void applyNextInput() {
+      if (queueSize == 0) {
+        appliedInput = 0;
+        return;
+      }
+      actions = queuedActions[queueStart];
+      appliedInput = queuedSequences[queueStart];
+      queueStart = (queueStart + 1) % queuedSequences.length;
+      queueSize--;
+    }
+
+    private double getSecondsConnected() {
+      return Math.max(1e-9, (System.nanoTime() - joinTime) / 1e9);
+    }
+
+    private double getBytesPerSecond() {
+      return bytesSent / getSecondsConnected();
+    }
+  }
+}
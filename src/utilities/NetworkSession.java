@@ -0,0 +1,29 @@
+package utilities;
+
+/**
+ * A {@code NetworkSession} connects a {@code GameController} to other machines. It is run by the
+ * controller around every execution cycle, as a {@code TickListener}.
+ *
+ * @author Russell Newton
+ * @see NetworkServer
+ * @see NetworkClient
+ **/
+public interface NetworkSession extends TickListener {
+
+  /**
+   * Run before the physics step. Receive what has arrived and apply it.
+   */
+  @Override
+  void beforeTick();
+
+  /**
+   * Run after the {@code Player}, bots, and {@code Obstacles} are updated. Send what is due.
+   */
+  @Override
+  void afterTick();
+
+  /**
+   * Stop sending and receiving.
+   */
+  void close();
+}
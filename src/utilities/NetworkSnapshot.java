@@ -0,0 +1,240 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.NETWORK_ANGLE_PRECISION;
+import static utilities.metadata.StaticUtilities.NETWORK_POSITION_PRECISION;
+import static utilities.metadata.StaticUtilities.NETWORK_VELOCITY_PRECISION;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+/**
+ * A {@code NetworkSnapshot} is the quantized state of every networked body at one server tick.
+ * Each body is stored as a row of integers, so two snapshots can be compared exactly and only the
+ * changed values sent.<br><br> A delta is written as the number of changed rows, then for each
+ * changed row the gap from the previous changed row, a mask of its changed fields, and each changed
+ * field as a zigzag varint difference from the base. Rows missing from the base count as all zero.
+ * A delta can be split by rows into several packets, each written from the row the last one ended
+ * at, so no packet grows past {@code NETWORK_MAX_PACKET_SIZE}.
+ *
+ * @author Russell Newton
+ * @see NetworkServer
+ * @see NetworkClient
+ **/
+final class NetworkSnapshot {
+
+  static final int PRESENT = 0;
+  static final int POSITION_X = 1;
+  static final int POSITION_Y = 2;
+  static final int VELOCITY_X = 3;
+  static final int VELOCITY_Y = 4;
+  static final int MOTION_FLAGS = 5;
+  static final int ANGLE = 6;
+  static final int FIELDS = 7;
+  static final int MAX_ROW_SIZE = 5 + 1 + FIELDS * 5;   //Row gap, mask, and fields, as varints
+
+  int sequence = 0;
+  int serverTick = 0;
+  long time = 0;
+  private int count = 0;
+  private int[] values = new int[0];
+
+  /**
+   * Quantizes the state of {@code entities}. Null entries are stored as absent.
+   */
+  void capture(List<? extends Obstacle> entities) {
+    setCount(entities.size());
+    for (int i = 0; i < count; i++) {
+      Obstacle entity = entities.get(i);
+      int row = i * FIELDS;
+      if (entity == null) {
+        for (int field = 0; field < FIELDS; field++) {
+          values[row + field] = 0;
+        }
+        continue;
+      }
+      Body body = entity.body;
+      values[row + PRESENT] = 1;
+      values[row + POSITION_X] = quantize(body.getPosition().x, NETWORK_POSITION_PRECISION);
+      values[row + POSITION_Y] = quantize(body.getPosition().y, NETWORK_POSITION_PRECISION);
+      values[row + VELOCITY_X] = quantize(body.getLinearVelocity().x, NETWORK_VELOCITY_PRECISION);
+      values[row + VELOCITY_Y] = quantize(body.getLinearVelocity().y, NETWORK_VELOCITY_PRECISION);
+      values[row + MOTION_FLAGS] = entity instanceof Agent ? ((Agent) entity).getMotionFlags() : 0;
+      values[row + ANGLE] = quantize(body.getAngle(), NETWORK_ANGLE_PRECISION);
+    }
+  }
+
+  /**
+   * Writes every row that differs from {@code base}. {@code out} must have room for them all.
+   *
+   * @param base the snapshot the receiver already has, or null to write every row.
+   */
+  void writeDelta(ByteBuffer out, NetworkSnapshot base) {
+    writeDelta(out, base, 0);
+  }
+
+  /**
+   * Writes the rows from {@code firstRow} on that differ from {@code base}, until {@code out} has
+   * no room left for another row.
+   *
+   * @param base the snapshot the receiver already has, or null to write every row.
+   * @return the row after the last one covered, which the next packet starts from. It is {@code
+   * getCount()} once every row is covered.
+   */
+  int writeDelta(ByteBuffer out, NetworkSnapshot base, int firstRow) {
+    int countPosition = out.position();
+    out.putShort((short) 0);
+    int changed = 0;
+    int lastRow = firstRow - 1;
+    int i = firstRow;
+    for (; i < count; i++) {
+      int mask = 0;
+      for (int field = 0; field < FIELDS; field++) {
+        if (values[i * FIELDS + field] != baseValue(base, i, field)) {
+          mask |= 1 << field;
+        }
+      }
+      if (mask == 0) {
+        continue;
+      }
+      if (out.remaining() < MAX_ROW_SIZE) {
+        break;
+      }
+      putVarInt(out, i - lastRow - 1);
+      out.put((byte) mask);
+      for (int field = 0; field < FIELDS; field++) {
+        if ((mask & (1 << field)) != 0) {
+          putVarInt(out, zigzag(values[i * FIELDS + field] - baseValue(base, i, field)));
+        }
+      }
+      lastRow = i;
+      changed++;
+    }
+    out.putShort(countPosition, (short) changed);
+    return i;
+  }
+
+  /**
+   * Rebuilds this snapshot from {@code base} and a delta written by {@code writeDelta()}.
+   *
+   * @param base the snapshot the delta was written against, or null.
+   * @param count the number of rows in the new snapshot.
+   */
+  void readDelta(ByteBuffer in, NetworkSnapshot base, int count) {
+    reset(base, count);
+    readDelta(in, 0);
+  }
+
+  /**
+   * Starts rebuilding this snapshot as a copy of {@code base}, before its deltas are read.
+   *
+   * @param base the snapshot the deltas were written against, or null.
+   * @param count the number of rows in the new snapshot.
+   */
+  void reset(NetworkSnapshot base, int count) {
+    setCount(count);
+    for (int i = 0; i < count; i++) {
+      for (int field = 0; field < FIELDS; field++) {
+        values[i * FIELDS + field] = baseValue(base, i, field);
+      }
+    }
+  }
+
+  /**
+   * Applies one packet's delta written by {@code writeDelta()}. Call {@code reset()} first.
+   *
+   * @param firstRow the row the packet's delta was written from.
+   */
+  void readDelta(ByteBuffer in, int firstRow) {
+    int changed = in.getShort();
+    int row = firstRow - 1;
+    for (int j = 0; j < changed; j++) {
+      row += getVarInt(in) + 1;
+      int mask = in.get();
+      for (int field = 0; field < FIELDS; field++) {
+        if ((mask & (1 << field)) != 0) {
+          values[row * FIELDS + field] += unzigzag(getVarInt(in));
+        }
+      }
+    }
+  }
+
+  int getCount() {
+    return count;
+  }
+
+  boolean isPresent(int row) {
+    return row < count && values[row * FIELDS + PRESENT] != 0;
+  }
+
+  int get(int row, int field) {
+    return values[row * FIELDS + field];
+  }
+
+  /**
+   * Writes the dequantized position of a row into {@code out}.
+   */
+  void getPosition(int row, Vec2 out) {
+    out.set(values[row * FIELDS + POSITION_X] * NETWORK_POSITION_PRECISION,
+        values[row * FIELDS + POSITION_Y] * NETWORK_POSITION_PRECISION);
+  }
+
+  /**
+   * Writes the dequantized velocity of a row into {@code out}.
+   */
+  void getVelocity(int row, Vec2 out) {
+    out.set(values[row * FIELDS + VELOCITY_X] * NETWORK_VELOCITY_PRECISION,
+        values[row * FIELDS + VELOCITY_Y] * NETWORK_VELOCITY_PRECISION);
+  }
+
+  /**
+   * @return the dequantized angle of a row.
+   */
+  float getAngle(int row) {
+    return values[row * FIELDS + ANGLE] * NETWORK_ANGLE_PRECISION;
+  }
+
+  private void setCount(int count) {
+    this.count = count;
+    if (values.length < count * FIELDS) {
+      values = new int[Math.max(count, values.length / FIELDS * 2) * FIELDS];
+    }
+  }
+
+  private static int baseValue(NetworkSnapshot base, int row, int field) {
+    return base == null || row >= base.count ? 0 : base.values[row * FIELDS + field];
+  }
+
+  private static int quantize(float value, float precision) {
+    return Math.round(value / precision);
+  }
+
+  private static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int unzigzag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void putVarInt(ByteBuffer out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private static int getVarInt(ByteBuffer in) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+}
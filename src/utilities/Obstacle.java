@@ -14,6 +14,8 @@ import static utilities.metadata.StaticUtilities.toPixelPosX;
 import static utilities.metadata.StaticUtilities.toPixelPosY;
 import static utilities.metadata.StaticUtilities.toPixelWidth;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import javafx.scene.paint.Paint;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.transform.Rotate;
@@ -25,6 +27,8 @@ import org.jbox2d.dynamics.BodyDef;
 import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.FixtureDef;
+import utilities.metadata.CollisionLayer;
+import utilities.metadata.ContactOperation;
 import utilities.metadata.StaticUtilities;
 import utilities.metadata.UserData;
 
@@ -44,8 +48,14 @@ public class Obstacle {
   protected Body body;
   protected Vec2 centerOfMass;
   protected Paint fill;
+  protected CollisionLayer collisionLayer = CollisionLayer.OBSTACLE;
   Rectangle screenMask;
+  int poolIndex = -1;
   private BodyType bodyType;
+  private final HashMap<String, Fixture> taggedFixtures = new HashMap<>();
+  private final ArrayList<String> contactOperationNames = new ArrayList<>();
+  private boolean isDestroyed = false;
+  boolean isPendingDestruction = false;
 
   /**
    * Create a new {@code obstacle}.
@@ -152,6 +162,13 @@ public class Obstacle {
     return screenMask;
   }
 
+  /**
+   * @return the position of this {@code Obstacle's} body. Do not modify it.
+   */
+  public Vec2 getPosition() {
+    return body.getPosition();
+  }
+
   /**
    * Initializes this {@code Obstacle's} corresponding physics body.
    */
@@ -168,8 +185,10 @@ public class Obstacle {
 
     FixtureDef fd = new FixtureDef();
     fd.shape = ps;
+    collisionLayer.applyTo(fd);
 
     body = controller.world.createBody(bd);
+    controller.bodiesCreated++;
     body.createFixture(fd);
     body.setUserData(new UserData().addUserData("obstacle", this));
     setFixtureData();
@@ -276,6 +295,28 @@ public class Obstacle {
 
   }
 
+  /**
+   * Add a {@code ContactOperation} to the controller's {@code WorldContactListener} on behalf of
+   * this {@code Obstacle}. It is removed again when this {@code Obstacle} is destroyed.
+   *
+   * @param name the name to refer to the {@code ContactOperation} by.
+   * @param contactOperation the {@code ContactOperation}.
+   */
+  protected void addContactOperation(String name, ContactOperation contactOperation) {
+    controller.contactListener.addContactOperation(name, contactOperation);
+    contactOperationNames.add(name);
+  }
+
+  /**
+   * Remove every {@code ContactOperation} added with {@code addContactOperation()}.
+   */
+  private void removeContactOperations() {
+    for (String name : contactOperationNames) {
+      controller.contactListener.removeContactOperation(name);
+    }
+    contactOperationNames.clear();
+  }
+
   /**
    * Set the sprite of this {@code Obstacle}.
    *
@@ -286,12 +327,87 @@ public class Obstacle {
   }
 
   /**
-   * This method creates sensors on all four sides of the {@code Obstacle's} physics body. Run this
-   * at the end of the {@code setFixtureData()} method.
+   * Set the {@code CollisionLayer} of this {@code Obstacle's} primary {@code Fixture}. This can be
+   * called before or after the {@code Obstacle} is initialized.
+   *
+   * @param collisionLayer the layer to put this {@code Obstacle} in.
+   */
+  public void setCollisionLayer(CollisionLayer collisionLayer) {
+    this.collisionLayer = collisionLayer;
+    if (body != null) {
+      collisionLayer.applyTo(body.getFixtureList());
+    }
+  }
+
+  /**
+   * @return the {@code CollisionLayer} of this {@code Obstacle's} primary {@code Fixture}.
+   */
+  public CollisionLayer getCollisionLayer() {
+    return collisionLayer;
+  }
+
+  /**
+   * Give one of this {@code Obstacle's Fixtures} a tag, so it can be looked up with {@code
+   * getTaggedFixture()} and checked with {@code isTouching()}.
+   *
+   * @param tag the tag to refer to the {@code Fixture} by.
+   * @param fixture the {@code Fixture}.
+   * @return the {@code Fixture}.
+   */
+  protected Fixture tagFixture(String tag, Fixture fixture) {
+    taggedFixtures.put(tag, fixture);
+    return fixture;
+  }
+
+  /**
+   * @param tag the tag given to the {@code Fixture}. Side sensors are tagged "bottom", "left",
+   * "right", and "top".
+   * @return the tagged {@code Fixture}, or null if there is none.
+   */
+  public Fixture getTaggedFixture(String tag) {
+    return taggedFixtures.get(tag);
+  }
+
+  /**
+   * Checks the {@code GameController's ContactIndex} for whether a tagged {@code Fixture} is
+   * touching anything in one of the given {@code CollisionLayers}.
+   *
+   * @param fixtureTag the tag given to the {@code Fixture}.
+   * @param layers the layers to check. If none are given, any layer counts.
+   * @return whether or not the tagged {@code Fixture} is touching.
+   */
+  public boolean isTouching(String fixtureTag, CollisionLayer... layers) {
+    Fixture fixture = taggedFixtures.get(fixtureTag);
+    if (fixture == null) {
+      return false;
+    }
+    int categoryBits = layers.length == 0 ? -1 : 0;
+    for (CollisionLayer layer : layers) {
+      categoryBits |= layer.getCategoryBits();
+    }
+    return controller.contactListener.getContactIndex().isTouching(fixture, categoryBits);
+  }
+
+  /**
+   * This method creates sensors on all four sides of the {@code Obstacle's} physics body, in the
+   * same {@code CollisionLayer} as the body itself. Run this at the end of the {@code
+   * setFixtureData()} method.
    *
    * @param sensorKey the key to refer to the sensors as in {@code UserData}
    */
   protected void createSideSensors(String sensorKey) {
+    createSideSensors(sensorKey, collisionLayer);
+  }
+
+  /**
+   * This method creates sensors on all four sides of the {@code Obstacle's} physics body. Run this
+   * at the end of the {@code setFixtureData()} method. The sensors are tagged by their side.
+   *
+   * @param sensorKey the key to refer to the sensors as in {@code UserData}
+   * @param sensorLayer the {@code CollisionLayer} of the sensors. Only layers it collides with will
+   * produce sensor contacts.
+   */
+  protected void createSideSensors(String sensorKey, CollisionLayer sensorLayer) {
     //Create the bottom sensor
     PolygonShape bottomSensorShape = new PolygonShape();
     bottomSensorShape.set(new Vec2[]{
@@ -303,8 +419,9 @@ public class Obstacle {
     FixtureDef bottomSensor = new FixtureDef();
     bottomSensor.shape = bottomSensorShape;
     bottomSensor.isSensor = true;
+    sensorLayer.applyTo(bottomSensor);
     bottomSensor.userData = new UserData().addUserData(sensorKey, "bottom");
-    body.createFixture(bottomSensor);
+    tagFixture("bottom", body.createFixture(bottomSensor));
 
     //Create the left sensor
     PolygonShape leftSensorShape = new PolygonShape();
@@ -317,8 +434,9 @@ public class Obstacle {
     FixtureDef leftSensor = new FixtureDef();
     leftSensor.shape = leftSensorShape;
     leftSensor.isSensor = true;
+    sensorLayer.applyTo(leftSensor);
     leftSensor.userData = new UserData().addUserData(sensorKey, "left");
-    body.createFixture(leftSensor);
+    tagFixture("left", body.createFixture(leftSensor));
 
     //Create the right sensor
     PolygonShape rightSensorShape = new PolygonShape();
@@ -331,8 +449,9 @@ public class Obstacle {
     FixtureDef rightSensor = new FixtureDef();
     rightSensor.shape = rightSensorShape;
     rightSensor.isSensor = true;
+    sensorLayer.applyTo(rightSensor);
     rightSensor.userData = new UserData().addUserData(sensorKey, "right");
-    body.createFixture(rightSensor);
+    tagFixture("right", body.createFixture(rightSensor));
 
     //Create the top sensor
     PolygonShape topSensorShape = new PolygonShape();
@@ -345,19 +464,110 @@ public class Obstacle {
     FixtureDef topSensor = new FixtureDef();
     topSensor.shape = topSensorShape;
     topSensor.isSensor = true;
+    sensorLayer.applyTo(topSensor);
     topSensor.userData = new UserData().addUserData(sensorKey, "top");
-    body.createFixture(topSensor);
+    tagFixture("top", body.createFixture(topSensor));
+  }
+
+  /**
+   * @return the number of values {@code saveState()} writes. Subclasses that keep simulation
+   * state outside their body override this, {@code saveState()}, and {@code restoreState()}.
+   */
+  protected int getStateSize() {
+    return 0;
+  }
+
+  /**
+   * Writes the simulation state kept outside the body into {@code state}, starting at {@code
+   * offset}. This is used by {@code WorldSnapshot}, and must not allocate.
+   */
+  protected void saveState(double[] state, int offset) {
+  }
+
+  /**
+   * Reads back what {@code saveState()} wrote.
+   */
+  protected void restoreState(double[] state, int offset) {
   }
 
+  /**
+   * Puts a pooled {@code Obstacle} back into play at a new position, at rest, with a new fill.
+   * This is run by the {@code ObstaclePool} instead of creating a new {@code Obstacle}.
+   */
+  void respawn(Vec2 position, Paint fill) {
+    startX = position.x;
+    startY = position.y;
+    this.fill = fill;
+    body.setTransform(position, 0);
+    body.getLinearVelocity().setZero();
+    body.setAngularVelocity(0);
+    body.setActive(true);
+    body.setAwake(true);
+    screenMask.setFill(fill);
+    screenMask.setVisible(true);
+    if (!controller.isHeadless()) {
+      updateScreenMask();
+    }
+  }
+
+  /**
+   * Takes a pooled {@code Obstacle} out of play without destroying it. Its body stops colliding
+   * and its screenMask is hidden. Everything set on it while it was in play is undone, so the next
+   * spawn gets it back as new: its {@code ContactOperations} are removed, it is put back in the
+   * {@code OBSTACLE CollisionLayer}, and its screenMask loses any flip. This must not be run during
+   * a physics step.
+   */
+  void deactivate() {
+    body.setActive(false);
+    removeContactOperations();
+    setCollisionLayer(CollisionLayer.OBSTACLE);
+    screenMask.getTransforms().clear();
+    screenMask.setVisible(false);
+  }
+
+  /**
+   * Destroy this {@code Obstacle} once the current physics step is over. This is safe to call from
+   * a {@code ContactOperation}.
+   *
+   * @see GameController#destroyObstacle(Obstacle)
+   */
   public void deleteObstacle() {
+    controller.destroyObstacle(this);
+  }
+
+  /**
+   * Releases everything this {@code Obstacle} holds in its controller: its {@code
+   * ContactOperations}, its entries in the {@code ContactIndex}, its body and {@code Fixtures}, and
+   * its screenMask. This is run by the controller between physics steps.
+   */
+  void destroy() {
+    if (isDestroyed) {
+      return;
+    }
+    removeContactOperations();
+    //Forget first, since the Fixtures are gone once the body is destroyed
+    controller.contactListener.getContactIndex().forget(body);
     controller.world.destroyBody(body);
+    controller.removeFromScreen(screenMask);
+    taggedFixtures.clear();
+    isDestroyed = true;
+  }
+
+  /**
+   * @return whether or not this {@code Obstacle's} body has been destroyed.
+   */
+  public boolean isDestroyed() {
+    return isDestroyed;
   }
 
   /**
-   * Updates the {@code Obstacle}. Call this in a {@code GameController's execute()} method.
+   * Updates the {@code Obstacle}. Call this in a {@code GameController's execute()} method. The
+   * screenMask is left alone while the controller is headless.
    */
   public void update() {
-    updateScreenMask();
+    if (!controller.isHeadless()) {
+      updateScreenMask();
+    }
   }
 
 
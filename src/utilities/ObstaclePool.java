@@ -0,0 +1,257 @@
+package utilities;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import javafx.scene.paint.Paint;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.BodyType;
+
+/**
+ * An {@code ObstaclePool} spawns short-lived {@code Obstacles}, like projectiles or falling
+ * blocks, without creating a new body, screenMask, and metadata each time. A released {@code
+ * Obstacle} is deactivated and kept, by its shape class: its width, height, and {@code BodyType}.
+ * The next spawn of the same shape class moves it into place, puts it at rest, and activates it
+ * again.<br><br> Releasing is deferred until the controller is between physics steps, so it is
+ * safe to release from a {@code ContactOperation}. Spawned {@code Obstacles} are updated by the
+ * controller every execution cycle until they are released.
+ *
+ * @author Russell Newton
+ * @see GameController#spawnObstacle(float, float, float, float, BodyType, Paint)
+ **/
+public class ObstaclePool {
+
+  private final GameController controller;
+  private final HashMap<ShapeClass, Pool> pools = new HashMap<>();
+  private final ShapeClass lookup = new ShapeClass();
+  private final ArrayList<Obstacle> live = new ArrayList<>();
+  private final ArrayList<Obstacle> pendingReleases = new ArrayList<>();
+  private final Vec2 position = new Vec2();
+  private long spawns = 0;
+  private long hits = 0;
+  private int liveHighWater = 0;
+
+  ObstaclePool(GameController controller) {
+    this.controller = controller;
+  }
+
+  /**
+   * Spawn an {@code Obstacle}, reusing a released one of the same shape class if there is one.
+   *
+   * @return the {@code Obstacle}, at rest at {@code (startX, startY)}.
+   */
+  Obstacle spawn(float startX, float startY, float width, float height, BodyType bodyType,
+      Paint fill) {
+    spawns++;
+    Pool pool = pools.get(lookup.set(width, height, bodyType));
+    if (pool == null) {
+      pool = new Pool();
+      pools.put(new ShapeClass().set(width, height, bodyType), pool);
+    }
+
+    Obstacle obstacle = pool.free.pollLast();
+    if (obstacle != null) {
+      hits++;
+      position.set(startX, startY);
+      obstacle.respawn(position, fill);
+    } else {
+      obstacle = new Obstacle(controller, startX, startY, width, height, 0, fill, bodyType);
+      obstacle.initialize();
+      pool.created++;
+    }
+    pool.live++;
+    pool.liveHighWater = Math.max(pool.liveHighWater, pool.live);
+
+    obstacle.poolIndex = live.size();
+    live.add(obstacle);
+    liveHighWater = Math.max(liveHighWater, live.size());
+    return obstacle;
+  }
+
+  /**
+   * Release a spawned {@code Obstacle} back to its pool once the current physics step is over.
+   * Releasing one that is not live does nothing.
+   */
+  void release(Obstacle obstacle) {
+    if (obstacle.poolIndex >= 0 && !pendingReleases.contains(obstacle)) {
+      pendingReleases.add(obstacle);
+    }
+  }
+
+  /**
+   * Deactivates every {@code Obstacle} released since the last flush. This is run by the
+   * controller between physics steps.
+   */
+  void flushReleases() {
+    for (int i = 0; i < pendingReleases.size(); i++) {
+      Obstacle obstacle = pendingReleases.get(i);
+      removeLive(obstacle);
+      obstacle.deactivate();
+
+      Pool pool = getPool(obstacle);
+      pool.live--;
+      pool.free.addLast(obstacle);
+    }
+    pendingReleases.clear();
+  }
+
+  /**
+   * Stops tracking an {@code Obstacle} that is being destroyed, whether it is live or released.
+   * Forgetting one this pool never spawned does nothing.
+   */
+  void discard(Obstacle obstacle) {
+    Pool pool = getPool(obstacle);
+    if (pool == null) {
+      return;
+    }
+    if (obstacle.poolIndex >= 0) {
+      pendingReleases.remove(obstacle);
+      removeLive(obstacle);
+      pool.live--;
+    } else {
+      pool.free.remove(obstacle);
+    }
+  }
+
+  /**
+   * Queues every {@code Obstacle} this pool holds, live or released, for destruction.
+   */
+  void destroyAll() {
+    for (int i = 0; i < live.size(); i++) {
+      controller.destroyObstacle(live.get(i));
+    }
+    for (Pool pool : pools.values()) {
+      for (Obstacle obstacle : pool.free) {
+        controller.destroyObstacle(obstacle);
+      }
+    }
+  }
+
+  /**
+   * Swaps the last live {@code Obstacle} into the place of {@code obstacle}.
+   */
+  private void removeLive(Obstacle obstacle) {
+    Obstacle last = live.remove(live.size() - 1);
+    if (last != obstacle) {
+      live.set(obstacle.poolIndex, last);
+      last.poolIndex = obstacle.poolIndex;
+    }
+    obstacle.poolIndex = -1;
+  }
+
+  private Pool getPool(Obstacle obstacle) {
+    return pools.get(lookup.set(obstacle.width, obstacle.height, obstacle.body.getType()));
+  }
+
+  /**
+   * Updates every live {@code Obstacle}.
+   */
+  void update() {
+    for (int i = 0; i < live.size(); i++) {
+      live.get(i).update();
+    }
+  }
+
+  /**
+   * Moves the screenMask of every live {@code Obstacle} to its body.
+   */
+  void updateScreenMasks() {
+    for (int i = 0; i < live.size(); i++) {
+      live.get(i).updateScreenMask();
+    }
+  }
+
+  /**
+   * @return the number of spawned {@code Obstacles} that have not been released.
+   */
+  public int getLiveCount() {
+    return live.size();
+  }
+
+  /**
+   * @return the number of bodies this pool holds, live or released.
+   */
+  public int getBodyCount() {
+    int count = live.size();
+    for (Pool pool : pools.values()) {
+      count += pool.free.size();
+    }
+    return count;
+  }
+
+  /**
+   * @return the share of spawns that reused a released {@code Obstacle}.
+   */
+  public double getHitRate() {
+    return spawns == 0 ? 0 : (double) hits / spawns;
+  }
+
+  /**
+   * @return the most spawned {@code Obstacles} live at once.
+   */
+  public int getLiveHighWater() {
+    return liveHighWater;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder toString = new StringBuilder(String.format("ObstaclePool:[spawns:%d, hit rate "
+        + "%.1f%%, live:%d, high water:%d]", spawns, getHitRate() * 100, live.size(),
+        liveHighWater));
+    for (Entry<ShapeClass, Pool> entry : pools.entrySet()) {
+      toString.append(String.format("%n  %s: created:%d, live:%d, free:%d, high water:%d",
+          entry.getKey(), entry.getValue().created, entry.getValue().live,
+          entry.getValue().free.size(), entry.getValue().liveHighWater));
+    }
+    return toString.toString();
+  }
+
+  /**
+   * The shape class {@code Obstacles} are pooled by. One instance is reused for lookups.
+   */
+  private static final class ShapeClass {
+
+    private float width;
+    private float height;
+    private BodyType bodyType;
+
+    private ShapeClass set(float width, float height, BodyType bodyType) {
+      this.width = width;
+      this.height = height;
+      this.bodyType = bodyType;
+      return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ShapeClass)) {
+        return false;
+      }
+      ShapeClass other = (ShapeClass) o;
+      return width == other.width && height == other.height && bodyType == other.bodyType;
+    }
+
+    @Override
+    public int hashCode() {
+      return (Float.floatToIntBits(width) * 31 + Float.floatToIntBits(height)) * 31
+          + bodyType.ordinal();
+    }
+
+    @Override
+    public String toString() {
+      return width + "x" + height + " " + bodyType;
+    }
+  }
+
+  /**
+   * The released {@code Obstacles} of one shape class, and its counts.
+   */
+  private static final class Pool {
+
+    private final ArrayDeque<Obstacle> free = new ArrayDeque<>();
+    private int created = 0;
+    private int live = 0;
+    private int liveHighWater = 0;
+  }
+}
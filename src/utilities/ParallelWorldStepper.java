@@ -0,0 +1,164 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.POSITION_ITERATIONS;
+import static utilities.metadata.StaticUtilities.STEP_INTERVAL;
+import static utilities.metadata.StaticUtilities.VELOCITY_ITERATIONS;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.jbox2d.dynamics.World;
+
+/**
+ * A {@code ParallelWorldStepper} steps many independent JBox2D {@code Worlds} at once on a {@code
+ * ForkJoinPool}. Each {@code World} is only ever stepped by one thread at a time and shares nothing
+ * with the others, so the results are exactly the same as stepping them one after another. The
+ * islands of a single {@code World} are still solved one after another inside {@code
+ * World.step()}, so this only helps with many {@code Worlds}, such as headless training copies.
+ *
+ * @author Russell Newton
+ **/
+public class ParallelWorldStepper {
+
+  private final ForkJoinPool pool;
+  private final ArrayList<Runnable> steps = new ArrayList<>();
+  private StepTask rootTask;
+
+  /**
+   * Create a {@code ParallelWorldStepper} that uses up to {@code parallelism} threads.
+   */
+  public ParallelWorldStepper(int parallelism) {
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Create a {@code ParallelWorldStepper} that uses one thread per available core.
+   */
+  public ParallelWorldStepper() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Add a {@code GameController} whose {@code World} will be stepped, along with its deferred
+   * contacts and execution time. Its timeline must be paused, since it would step the same {@code
+   * World} on the JavaFX thread.
+   *
+   * @throws IllegalStateException if the controller's timeline is running, when it is added or
+   * stepped.
+   */
+  public void add(GameController controller) {
+    checkPaused(controller);
+    add(() -> {
+      checkPaused(controller);
+      controller.stepWorld();
+    });
+  }
+
+  /**
+   * Add a bare {@code World} that will be stepped with the game's time step and iterations.
+   */
+  public void add(World world) {
+    add(() -> world.step((float) STEP_INTERVAL / 1000.0f, VELOCITY_ITERATIONS,
+        POSITION_ITERATIONS));
+  }
+
+  /**
+   * Add any step to run alongside the others. It must not touch state shared with another step.
+   */
+  public void add(Runnable step) {
+    steps.add(step);
+    rootTask = null;
+  }
+
+  /**
+   * Remove every step.
+   */
+  public void clear() {
+    steps.clear();
+    rootTask = null;
+  }
+
+  /**
+   * Run every step once and wait for all of them to finish. The tree of tasks is built once and
+   * reused, so stepping does not allocate.
+   */
+  public void step() {
+    if (steps.size() == 1 || pool.getParallelism() == 1) {
+      for (int i = 0; i < steps.size(); i++) {
+        steps.get(i).run();
+      }
+    } else if (!steps.isEmpty()) {
+      if (rootTask == null) {
+        rootTask = new StepTask(0, steps.size());
+      } else {
+        rootTask.reset();
+      }
+      pool.invoke(rootTask);
+    }
+  }
+
+  private static void checkPaused(GameController controller) {
+    if (controller.isExecutionTimelineRunning()) {
+      throw new IllegalStateException("A controller cannot be stepped in parallel while its "
+          + "timeline is running. Pause it first.");
+    }
+  }
+
+  /**
+   * @return how many threads the steps are spread over.
+   */
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Stop the threads. The {@code ParallelWorldStepper} cannot be used afterwards.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Splits the steps in half until each task holds a single step.
+   */
+  private final class StepTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int start;
+    private final StepTask left;
+    private final StepTask right;
+
+    private StepTask(int start, int end) {
+      this.start = start;
+      if (end - start == 1) {
+        left = null;
+        right = null;
+      } else {
+        int middle = (start + end) >>> 1;
+        left = new StepTask(start, middle);
+        right = new StepTask(middle, end);
+      }
+    }
+
+    /**
+     * Makes this task and its subtasks ready to run again.
+     */
+    private void reset() {
+      reinitialize();
+      if (left != null) {
+        left.reset();
+        right.reset();
+      }
+    }
+
+    @Override
+    protected void compute() {
+      if (left == null) {
+        steps.get(start).run();
+      } else {
+        invokeAll(left, right);
+      }
+    }
+  }
+}
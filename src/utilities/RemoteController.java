@@ -0,0 +1,144 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.INPUT_LATENCY_SAMPLES;
+import static utilities.metadata.StaticUtilities.REMOTE_MISSED_TICK_LIMIT;
+import static utilities.metadata.StaticUtilities.REMOTE_STARTUP_TIMEOUT;
+import static utilities.metadata.StaticUtilities.REMOTE_TICK_TIMEOUT;
+
+import java.io.IOException;
+import org.jbox2d.common.Vec2;
+import utilities.RemoteControllerHost.RemotePolicy;
+import utilities.metadata.LatencyRecorder;
+
+/**
+ * A {@code RemoteController} runs a {@code RemotePolicy} in a separate local process and
+ * exchanges one {@code RemoteFrame} with it each execution cycle through a {@code
+ * SharedMemoryChannel}.<br><br> The game never waits longer than {@code REMOTE_TICK_TIMEOUT}
+ * microseconds for an answer. A late answer repeats the last actions. After {@code
+ * REMOTE_MISSED_TICK_LIMIT} late answers in a row, or if the process exits, the process is killed
+ * and the actions are cleared, so a hung or crashing policy cannot stall the game.
+ *
+ * @author Russell Newton
+ * @see GameController#useRemoteController(String)
+ **/
+public class RemoteController {
+
+  private final String policyClassName;
+  private final SharedMemoryChannel channel;
+  private final Process process;
+  private final long startTime = System.nanoTime();
+  private final LatencyRecorder roundTrips = new LatencyRecorder(INPUT_LATENCY_SAMPLES);
+  private long tick = 0;
+  private int lastActions = 0;
+  private int missedTicks = 0;
+  private boolean hasFailed = false;
+
+  /**
+   * Start a controller process running {@code policyClassName}, with the same classpath as this
+   * one.
+   *
+   * @param policyClassName the name of a {@code RemotePolicy} class with a no-argument
+   * constructor.
+   * @throws IOException if the channel cannot be created or the process cannot be started.
+   */
+  public RemoteController(String policyClassName) throws IOException {
+    this.policyClassName = policyClassName;
+    channel = SharedMemoryChannel.create();
+    String java = ProcessHandle.current().info().command().orElse("java");
+    process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        RemoteControllerHost.class.getName(), channel.getPath().toString(), policyClassName)
+        .inheritIO().start();
+  }
+
+  /**
+   * Start a controller process running {@code policyClass}.
+   */
+  public RemoteController(Class<? extends RemotePolicy> policyClass) throws IOException {
+    this(policyClass.getName());
+  }
+
+  /**
+   * Send the state of an {@code Agent} and get back the actions it should hold.
+   */
+  public int exchange(Agent agent) {
+    return exchange(agent.body.getPosition(), agent.body.getLinearVelocity(),
+        agent.getMotionFlags(), agent.isGrounded());
+  }
+
+  /**
+   * Send one frame and get back the actions to hold.
+   *
+   * @return the {@code AgentAction} bits to hold. These are the last answered actions if the
+   * process is late or still starting, and 0 once it has been stopped.
+   */
+  public int exchange(Vec2 position, Vec2 velocity, int motionFlags, boolean isGrounded) {
+    if (hasFailed) {
+      return 0;
+    }
+    if (!process.isAlive()) {
+      fail("exited");
+      return 0;
+    }
+    if (!channel.isReady()) {
+      if (System.nanoTime() - startTime > REMOTE_STARTUP_TIMEOUT * 1_000_000L) {
+        fail("did not start in time");
+      }
+      return lastActions;
+    }
+
+    tick++;
+    RemoteFrame.writeRequest(channel, tick, position, velocity, motionFlags, isGrounded);
+    long sendTime = System.nanoTime();
+    channel.publishRequest(tick);
+    if (channel.awaitResponse(tick, REMOTE_TICK_TIMEOUT * 1000L)) {
+      roundTrips.record(System.nanoTime() - sendTime);
+      lastActions = RemoteFrame.readResponse(channel, tick);
+      missedTicks = 0;
+    } else if (++missedTicks >= REMOTE_MISSED_TICK_LIMIT) {
+      fail("missed " + missedTicks + " ticks in a row");
+      return 0;
+    }
+    return lastActions;
+  }
+
+  /**
+   * @return whether or not the process has started and is answering.
+   */
+  public boolean isReady() {
+    return !hasFailed && channel.isReady();
+  }
+
+  /**
+   * @return whether or not the process was stopped for misbehaving.
+   */
+  public boolean hasFailed() {
+    return hasFailed;
+  }
+
+  /**
+   * @return the round trip times of answered frames.
+   */
+  public LatencyRecorder getRoundTripLatency() {
+    return roundTrips;
+  }
+
+  /**
+   * Stop the controller process.
+   */
+  public void close() {
+    channel.markClosed();
+    process.destroy();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void fail(String reason) {
+    hasFailed = true;
+    System.out.println("Remote controller " + policyClassName + " " + reason + ". Stopping it.");
+    channel.markClosed();
+    process.destroyForcibly();
+  }
+}
@@ -0,0 +1,69 @@
+package utilities;
+
+import java.nio.file.Paths;
+
+/**
+ * The main class of an out-of-process controller. It is started by a {@code RemoteController}
+ * with the path of a {@code SharedMemoryChannel} and the name of a {@code RemotePolicy} class, and
+ * answers each frame the game publishes with the policy's actions. Only the newest frame is
+ * answered, so a slow policy skips frames instead of falling behind.<br><br> The host exits when
+ * the channel is closed or the game's process dies. It never touches JavaFX.
+ *
+ * @author Russell Newton
+ **/
+public class RemoteControllerHost {
+
+  private static final long PARENT_CHECK_NANOS = 100_000_000;
+
+  /**
+   * @param args the channel path and the {@code RemotePolicy} class name.
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.out.println("Usage: RemoteControllerHost <channel file> <policy class>");
+      return;
+    }
+    try (SharedMemoryChannel channel = SharedMemoryChannel.open(Paths.get(args[0]))) {
+      RemotePolicy policy = (RemotePolicy) Class.forName(args[1]).getDeclaredConstructor()
+          .newInstance();
+      ProcessHandle parent = ProcessHandle.current().parent().orElse(null);
+      RemoteFrame frame = new RemoteFrame();
+      channel.markReady();
+
+      long lastTick = 0;
+      while (!channel.isClosed()) {
+        long tick = channel.awaitRequest(lastTick, PARENT_CHECK_NANOS);
+        if (tick < 0) {
+          if (parent != null && !parent.isAlive()) {
+            break;
+          }
+          continue;
+        }
+        lastTick = tick;
+        frame.readRequest(channel, tick);
+        if (!channel.isCurrent(tick)) {
+          continue;
+        }
+        RemoteFrame.writeResponse(channel, tick, policy.act(frame));
+        channel.publishResponse(tick);
+      }
+    } catch (Exception e) {
+      System.out.println("Remote controller " + args[1] + " stopped.");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * A {@code RemotePolicy} chooses the {@code Player's} actions in the controller process. The
+   * class needs a public no-argument constructor.
+   */
+  @FunctionalInterface
+  public interface RemotePolicy {
+
+    /**
+     * @param frame the {@code Player's} state this execution cycle. The view is reused.
+     * @return the {@code AgentAction} bits to hold.
+     */
+    int act(RemoteFrame frame);
+  }
+}
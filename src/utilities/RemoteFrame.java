@@ -0,0 +1,115 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import org.jbox2d.common.Vec2;
+
+/**
+ * The state of the {@code Player} sent to an out-of-process controller every execution cycle. A
+ * {@code RemoteFrame} is a reused view: the controller process reads each request into the same
+ * one.
+ *
+ * @author Russell Newton
+ * @see RemoteControllerHost
+ **/
+public final class RemoteFrame {
+
+  private static final int TICK = 0;
+  private static final int POSITION_X = 8;
+  private static final int POSITION_Y = 12;
+  private static final int VELOCITY_X = 16;
+  private static final int VELOCITY_Y = 20;
+  private static final int MOTION_FLAGS = 24;
+  private static final int GROUNDED = 28;
+  private static final int ACTIONS = 0;
+
+  private long tick;
+  private float positionX;
+  private float positionY;
+  private float velocityX;
+  private float velocityY;
+  private int motionFlags;
+  private boolean isGrounded;
+
+  RemoteFrame() {
+  }
+
+  /**
+   * Writes the request for frame {@code tick}.
+   */
+  static void writeRequest(SharedMemoryChannel channel, long tick, Vec2 position, Vec2 velocity,
+      int motionFlags, boolean isGrounded) {
+    ByteBuffer buffer = channel.getBuffer();
+    int offset = channel.requestOffset(tick);
+    buffer.putLong(offset + TICK, tick);
+    buffer.putFloat(offset + POSITION_X, position.x);
+    buffer.putFloat(offset + POSITION_Y, position.y);
+    buffer.putFloat(offset + VELOCITY_X, velocity.x);
+    buffer.putFloat(offset + VELOCITY_Y, velocity.y);
+    buffer.putInt(offset + MOTION_FLAGS, motionFlags);
+    buffer.putInt(offset + GROUNDED, isGrounded ? 1 : 0);
+  }
+
+  /**
+   * Reads the request for frame {@code tick} into this view.
+   */
+  void readRequest(SharedMemoryChannel channel, long tick) {
+    ByteBuffer buffer = channel.getBuffer();
+    int offset = channel.requestOffset(tick);
+    this.tick = buffer.getLong(offset + TICK);
+    positionX = buffer.getFloat(offset + POSITION_X);
+    positionY = buffer.getFloat(offset + POSITION_Y);
+    velocityX = buffer.getFloat(offset + VELOCITY_X);
+    velocityY = buffer.getFloat(offset + VELOCITY_Y);
+    motionFlags = buffer.getInt(offset + MOTION_FLAGS);
+    isGrounded = buffer.getInt(offset + GROUNDED) != 0;
+  }
+
+  /**
+   * Writes the response to frame {@code tick}.
+   */
+  static void writeResponse(SharedMemoryChannel channel, long tick, int actions) {
+    channel.getBuffer().putInt(channel.responseOffset(tick) + ACTIONS, actions);
+  }
+
+  /**
+   * @return the {@code AgentAction} bits of the response to frame {@code tick}.
+   */
+  static int readResponse(SharedMemoryChannel channel, long tick) {
+    return channel.getBuffer().getInt(channel.responseOffset(tick) + ACTIONS);
+  }
+
+  /**
+   * @return the number of this frame. Frames start at 1 and skip none on the game's side.
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  public float getPositionX() {
+    return positionX;
+  }
+
+  public float getPositionY() {
+    return positionY;
+  }
+
+  public float getVelocityX() {
+    return velocityX;
+  }
+
+  public float getVelocityY() {
+    return velocityY;
+  }
+
+  /**
+   * @return the {@code Player's MotionState} flags.
+   * @see Agent.MotionState#getBit()
+   */
+  public int getMotionFlags() {
+    return motionFlags;
+  }
+
+  public boolean isGrounded() {
+    return isGrounded;
+  }
+}
@@ -0,0 +1,153 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.REWIND_INITIAL_BUFFER_SIZE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * A {@code RewindBuffer} keeps the simulation state of the last few seconds of play, one record
+ * per execution cycle, so play can be scrubbed backwards and resumed from any of them.<br><br> The
+ * records are kept off the heap in one direct buffer, used as a ring, so the garbage collector
+ * never scans them. The buffer starts at {@code REWIND_INITIAL_BUFFER_SIZE} and doubles whenever it
+ * is full, up to the size it was given, so a controller that only runs briefly never holds all of
+ * it. Every record has the same size: the transform, velocities,
+ * and awake flag of each body, and the state each {@code Obstacle} keeps outside its body, copied
+ * in bulk from a reused {@code WorldSnapshot}. If bodies are added or removed, the older records no
+ * longer fit the level and are dropped, and the ring is re-divided for the new record size.
+ *
+ * @author Russell Newton
+ * @see WorldSnapshot
+ **/
+public class RewindBuffer implements TickListener {
+
+  private final GameController controller;
+  private final int maxSize;
+  private ByteBuffer buffer;
+  private FloatBuffer floats;
+  private DoubleBuffer doubles;
+  private final WorldSnapshot staging = new WorldSnapshot();
+  private int recordSize = 0;
+  private int capacity = 0;
+  private int newest = -1;
+  private int count = 0;
+  private long recorded = 0;
+
+  /**
+   * Create a {@code RewindBuffer} for {@code controller}.
+   *
+   * @param size the most bytes to keep records in. This is all the memory it uses.
+   */
+  public RewindBuffer(GameController controller, int size) {
+    this.controller = controller;
+    maxSize = size & ~7;
+    allocate(Math.min(maxSize, REWIND_INITIAL_BUFFER_SIZE));
+  }
+
+  /**
+   * Record the current state as the newest, overwriting the oldest if the buffer is full. This is
+   * run by the controller at the end of every execution cycle.
+   */
+  @Override
+  public void afterTick() {
+    if (!staging.capture(controller, controller.getExecutionTime())
+        || staging.getRecordSize() != recordSize) {
+      recordSize = staging.getRecordSize();
+      capacity = buffer.capacity() / recordSize;
+      newest = -1;
+      count = 0;
+    }
+    while (count == capacity && buffer.capacity() < maxSize) {
+      grow();
+    }
+    if (capacity == 0) {
+      return;
+    }
+    newest = (newest + 1) % capacity;
+    staging.write(floats, doubles, newest * recordSize);
+    count = Math.min(count + 1, capacity);
+    recorded++;
+  }
+
+  /**
+   * Restore the state from {@code ticksBack} execution cycles before the newest record, and
+   * forget the records after it, so play resumes from there.
+   *
+   * @return whether or not the state was restored. It is not if there is no such record.
+   */
+  public boolean rewind(int ticksBack) {
+    if (ticksBack < 0 || ticksBack >= count) {
+      return false;
+    }
+    int slot = Math.floorMod(newest - ticksBack, capacity);
+    staging.read(floats, doubles, slot * recordSize);
+    if (!controller.restoreSnapshot(staging)) {
+      clear();
+      return false;
+    }
+    newest = slot;
+    count -= ticksBack;
+    return true;
+  }
+
+  /**
+   * Double the buffer, up to {@code maxSize}, and move the records into it from oldest to newest.
+   */
+  private void grow() {
+    ByteBuffer records = buffer;
+    int slots = capacity;
+    allocate((int) Math.min(maxSize, (long) records.capacity() * 2));
+    capacity = buffer.capacity() / recordSize;
+    for (int i = 0; i < count; i++) {
+      int from = Math.floorMod(newest - count + 1 + i, slots) * recordSize;
+      records.limit(from + recordSize).position(from);
+      buffer.put(records);
+    }
+    records.clear();
+    buffer.clear();
+    newest = count - 1;
+  }
+
+  private void allocate(int size) {
+    buffer = ByteBuffer.allocateDirect(size & ~7).order(ByteOrder.nativeOrder());
+    floats = buffer.asFloatBuffer();
+    doubles = buffer.asDoubleBuffer();
+  }
+
+  /**
+   * Forget every record.
+   */
+  public void clear() {
+    newest = -1;
+    count = 0;
+  }
+
+  /**
+   * @return the number of execution cycles that can be rewound.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return the number of execution cycles that fit in the buffer at the current record size.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the size of the buffer in bytes, which grows up to the size it was given.
+   */
+  public int getSize() {
+    return buffer.capacity();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("RewindBuffer:[%d of %d ticks, %d B/tick, %.1f MiB, %d recorded]", count,
+        capacity, recordSize, buffer.capacity() / 1048576.0, recorded);
+  }
+}
@@ -1,22 +1,71 @@
 package utilities;
 
+import static utilities.metadata.StaticUtilities.SCREEN_CACHE_HEAP_FRACTION;
+import static utilities.metadata.StaticUtilities.SCREEN_CACHE_SIZE;
+import static utilities.metadata.StaticUtilities.SCREEN_LOADER_THREADS;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
+import utilities.metadata.AssetBundle;
 
 /**
+ * A {@code SceneController} loads screen setups and swaps them into a {@code Scene}. A screen is
+ * built in code from a factory of its controller, or loaded from a .fxml file. Screens can be
+ * loaded right away with {@code addScreen()}, or preloaded on background threads with {@code
+ * preloadScreen()}, which creates the root pane, builds the level, and decodes its sprites off the
+ * JavaFX application thread. A preloaded screen is registered on the JavaFX application thread
+ * once it is ready, so every method here should be called from that thread.<br><br> Loaded
+ * screens are kept in a cache of {@code SCREEN_CACHE_SIZE} screens. When it is over that size, or
+ * the heap was still over {@code SCREEN_CACHE_HEAP_FRACTION} full after the last garbage
+ * collection, the least recently activated inactive screens are disposed. An evicted screen is
+ * rebuilt in the background the next time it is activated.
+ *
  * @author Russell Newton
  */
 public class SceneController {
 
+  private static final ExecutorService loader = Executors.newFixedThreadPool(
+      SCREEN_LOADER_THREADS, (runnable) -> {
+        Thread thread = new Thread(runnable, "Screen Loader");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private static final List<MemoryPoolMXBean> heapPools = ManagementFactory
+      .getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+      .collect(Collectors.toList());
+
   private HashMap<String, String> filePathMap = new HashMap<>();
+  private HashMap<String, Supplier<? extends GameController>> factoryMap = new HashMap<>();
   private HashMap<String, AnchorPane> screenMap = new HashMap<>();
-  private HashMap<String, GameController> controllerMap = new HashMap<>();
+  private LinkedHashMap<String, GameController> controllerMap = new LinkedHashMap<>(16, 0.75f,
+      true);
+  private HashMap<String, CompletableFuture<GameController>> loadingMap = new HashMap<>();
   private Scene main;
   private GameController currentController;
+  private String pendingActivation;
+  private int cacheSize = SCREEN_CACHE_SIZE;
+  private int evictions = 0;
 
   /**
    * Set up a {@code SceneController} for a {@code Scene} in order to manage the different
@@ -36,55 +85,355 @@ public class SceneController {
    * @throws IOException if it cannot load the .fxml file at the given path.
    */
   public void addScreen(String name, String fxmlPath) throws IOException {
+    if (!isKnown(name)) {
+      filePathMap.put(name, fxmlPath);
+    }
+    addScreen(name);
+  }
+
+  /**
+   * Add a screen setup under a designated name, built in code instead of from a .fxml file. The
+   * controller's root pane is created directly, which skips parsing XML and reflection.
+   *
+   * @param name what the screen setup will be called.
+   * @param factory creates a new instance of the screen's controller, like {@code
+   * TestGameController::new}.
+   */
+  public void addScreen(String name, Supplier<? extends GameController> factory) {
+    if (!isKnown(name)) {
+      factoryMap.put(name, factory);
+    }
+    try {
+      addScreen(name);
+    } catch (IOException e) {
+      //Only .fxml setups throw
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void addScreen(String name) throws IOException {
     System.out.println("Loading controller " + name + "...");
+    register(name, loadScreen(factoryMap.get(name), filePathMap.get(name)));
+    System.out.println("Controller " + name + " has been loaded and paused.\n\n\n\n\n");
+  }
 
-    if (!filePathMap.containsKey(name)) {
+  /**
+   * Start loading a screen setup under a designated name from a .fxml file on a background thread.
+   * The screen is added once it is loaded. Preloading a screen that is already loaded or loading
+   * does nothing.
+   *
+   * @param name what the screen setup will be called.
+   * @param fxmlPath path to GameController .fxml.
+   * @return completes with the screen's controller on the JavaFX application thread once the
+   * screen is added, or exceptionally if the .fxml file cannot be loaded.
+   */
+  public CompletableFuture<GameController> preloadScreen(String name, String fxmlPath) {
+    if (!isKnown(name)) {
       filePathMap.put(name, fxmlPath);
     }
-    FXMLLoader fxmlLoader = getLoaderFromPath(filePathMap.get(name));
+    return preloadScreen(name);
+  }
 
+  /**
+   * Start building a screen setup under a designated name in code on a background thread. The
+   * screen is added once it is built. Preloading a screen that is already loaded or loading does
+   * nothing.
+   *
+   * @param name what the screen setup will be called.
+   * @param factory creates a new instance of the screen's controller, like {@code
+   * TestGameController::new}.
+   * @return completes with the screen's controller on the JavaFX application thread once the
+   * screen is added.
+   */
+  public CompletableFuture<GameController> preloadScreen(String name,
+      Supplier<? extends GameController> factory) {
+    if (!isKnown(name)) {
+      factoryMap.put(name, factory);
+    }
+    return preloadScreen(name);
+  }
+
+  private CompletableFuture<GameController> preloadScreen(String name) {
+    if (controllerMap.containsKey(name)) {
+      return CompletableFuture.completedFuture(controllerMap.get(name));
+    }
+    if (loadingMap.containsKey(name)) {
+      return loadingMap.get(name);
+    }
+    Supplier<? extends GameController> factory = factoryMap.get(name);
+    String filePath = filePathMap.get(name);
+
+    CompletableFuture<GameController> future = CompletableFuture.supplyAsync(() -> {
+      System.out.println("Preloading controller " + name + "...");
+      try {
+        return loadScreen(factory, filePath);
+      } catch (IOException e) {
+        System.out.println("Controller " + name + " cannot be loaded.");
+        e.printStackTrace();
+        throw new UncheckedIOException(e);
+      }
+    }, loader).thenApplyAsync((controller) -> {
+      //The screen was removed while it was loading
+      if (loadingMap.remove(name) == null) {
+        controller.dispose();
+        throw new CancellationException("Controller " + name + " was removed while loading.");
+      }
+      register(name, controller);
+      System.out.println("Controller " + name + " has been preloaded and paused.\n");
+      return controller;
+    }, Platform::runLater);
+    loadingMap.put(name, future);
+    return future;
+  }
+
+  /**
+   * Build a hidden copy of a screen setup on a background thread and run it for {@code ticks}
+   * execution cycles, so the code it runs is compiled before the screen is shown. The copy is
+   * disposed afterwards and never added.
+   *
+   * @param name the name of a screen setup that has been added or preloaded.
+   * @param ticks the number of execution cycles to run.
+   * @return completes once the copy has been run and disposed.
+   * @see GameController#warmUp(int)
+   */
+  public CompletableFuture<Void> warmUp(String name, int ticks) {
+    if (!isKnown(name)) {
+      throw new IllegalArgumentException("Controller " + name + " was never added.");
+    }
+    Supplier<? extends GameController> factory = factoryMap.get(name);
+    String filePath = filePathMap.get(name);
+
+    return CompletableFuture.runAsync(() -> {
+      System.out.println("Warming up controller " + name + "...");
+      long start = System.nanoTime();
+      try {
+        loadScreen(factory, filePath).warmUp(ticks);
+      } catch (IOException e) {
+        System.out.println("Controller " + name + " cannot be loaded.");
+        e.printStackTrace();
+        throw new UncheckedIOException(e);
+      }
+      System.out.println(String.format("Controller %s has been warmed up for %d ticks in %.0f ms.",
+          name, ticks, (System.nanoTime() - start) / 1e6));
+    }, loader);
+  }
+
+  /**
+   * Builds a new instance of a screen setup, in code if it has a factory, or from its .fxml file
+   * otherwise. The maps are not touched, so this is safe to run on any thread.
+   *
+   * @param factory the screen's factory, or null if it is loaded from a .fxml file.
+   * @param filePath the path to the screen's .fxml file, or null if it has a factory.
+   * @return the screen's controller, with its root pane set up.
+   * @throws IOException if it cannot load the .fxml file.
+   */
+  private GameController loadScreen(Supplier<? extends GameController> factory, String filePath)
+      throws IOException {
+    if (factory != null) {
+      GameController controller = factory.get();
+      controller.createScreen();
+      return controller;
+    }
+    FXMLLoader fxmlLoader = getLoaderFromPath(filePath);
+    try (InputStream fxml = AssetBundle.load(filePath)) {
+      fxmlLoader.load(fxml);
+    }
+    return fxmlLoader.getController();
+  }
+
+  /**
+   * Creates a factory for a {@code GameController} class by name, for classes that cannot be
+   * referenced directly, like those in the default package. Only the no-argument constructor is
+   * looked up, which is much cheaper than loading a .fxml file.
+   *
+   * @param className the fully qualified name of the {@code GameController} class.
+   * @return a factory of new instances of the class.
+   */
+  public static Supplier<GameController> factoryOf(String className) {
+    return () -> {
+      try {
+        return (GameController) Class.forName(className).getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+        System.out.println("Controller " + className + " cannot be created.");
+        e.printStackTrace();
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  /**
+   * @return whether or not a screen setup has been added or preloaded under {@code name}, whether
+   * or not it is loaded now.
+   */
+  private boolean isKnown(String name) {
+    return filePathMap.containsKey(name) || factoryMap.containsKey(name);
+  }
+
+  /**
+   * Adds a loaded screen setup to the maps, with its timeline paused.
+   */
+  private void register(String name, GameController controller) {
     //Add layout to screenMap
-    screenMap.put(name, fxmlLoader.load());
+    screenMap.put(name, controller.root);
     //Add controller to controllerMap
-    GameController controller = fxmlLoader.getController();
     controller.pauseExecutionTimeline();
     controllerMap.put(name, controller);
+    evictScreens();
+  }
 
-    System.out.println("Controller " + name + " has been loaded and paused.\n\n\n\n\n");
+  /**
+   * Disposes the least recently activated screens, other than the active one and one waiting to
+   * be activated, while there are more than {@code cacheSize} or the heap is too full. Their .fxml
+   * paths and factories are kept, so they can be rebuilt.
+   */
+  private void evictScreens() {
+    //Iterate over entries, since get() reorders an access-ordered map
+    Iterator<Entry<String, GameController>> entries = controllerMap.entrySet().iterator();
+    while (entries.hasNext() && (controllerMap.size() > cacheSize || isHeapFull())) {
+      Entry<String, GameController> entry = entries.next();
+      if (entry.getValue() == currentController || entry.getKey().equals(pendingActivation)) {
+        continue;
+      }
+      System.out.println("Evicting controller " + entry.getKey() + "...");
+      entries.remove();
+      screenMap.remove(entry.getKey());
+      entry.getValue().dispose();
+      evictions++;
+    }
+  }
+
+  /**
+   * @return whether or not the live data left after the last garbage collection fills more than
+   * {@code SCREEN_CACHE_HEAP_FRACTION} of the heap. Garbage that has not been collected yet does
+   * not count, so a burst of allocation does not evict screens.
+   */
+  private static boolean isHeapFull() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      MemoryUsage usage = pool.getCollectionUsage();
+      if (usage != null) {
+        used += usage.getUsed();
+      }
+    }
+    return used > Runtime.getRuntime().maxMemory() * SCREEN_CACHE_HEAP_FRACTION;
+  }
+
+  /**
+   * Set the number of loaded screens to keep, counting the active one. Screens past it are
+   * evicted right away.
+   */
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = Math.max(1, cacheSize);
+    evictScreens();
+  }
+
+  /**
+   * @return the number of screens evicted from the cache.
+   */
+  public int getEvictionCount() {
+    return evictions;
   }
 
   /**
-   * Remove a screen setup from the list of possible setups.
+   * Remove a screen setup from the list of possible setups, and dispose of its controller.
    *
    * @param name the name of the screen setup to be removed.
+   * @see GameController#dispose()
    */
   public void removeScreen(String name) {
     System.out.println("Removing controller " + name + "...");
 
     screenMap.remove(name);
-    controllerMap.remove(name);
+    loadingMap.remove(name);
+    if (name.equals(pendingActivation)) {
+      pendingActivation = null;
+    }
+    GameController controller = controllerMap.remove(name);
+    if (controller != null) {
+      if (controller == currentController) {
+        //The Scene would otherwise keep the removed root, and through it the controller
+        main.setRoot(new AnchorPane());
+        currentController = null;
+      }
+      controller.dispose();
+    }
 
     System.out.println("Controller " + name + " has been removed.\n");
   }
 
   /**
-   * Activate one of the loaded screen setups.
+   * Activate one of the screen setups. A screen that was evicted, or is still preloading, is
+   * activated once it is ready instead.
    *
    * @param name the name of the screen setup to be loaded.
    */
   public void activate(String name) {
+    if (!controllerMap.containsKey(name)) {
+      activateWhenReady(name);
+      return;
+    }
     System.out.println("Activating controller " + name + "...");
 
+    pendingActivation = null;
     pauseCurrentControllerTimeline();
+    if (currentController != null) {
+      currentController.getInputDispatcher().detach();
+    }
     main.setRoot(screenMap.get(name));
     currentController = controllerMap.get(name);
+    currentController.getInputDispatcher().attach(main);
     resumeCurrentControllerTimeline();
+    evictScreens();
 
     System.out.println("Controller " + name + " has been activated.\n");
   }
 
   /**
-   * Load a .fxml file into an {@code FXMLLoader}.
+   * Activate a screen setup as soon as it is loaded, or right away if it already is. A screen that
+   * was evicted is preloaded again first. If another screen is activated before this one is ready,
+   * this one is not activated.
+   *
+   * @param name the name of the screen setup to be loaded. It must have been added or preloaded.
+   * @return completes with the activated controller once the screen is activated.
+   */
+  public CompletableFuture<GameController> activateWhenReady(String name) {
+    if (controllerMap.containsKey(name)) {
+      activate(name);
+      return CompletableFuture.completedFuture(currentController);
+    }
+    if (!loadingMap.containsKey(name) && isKnown(name)) {
+      preloadScreen(name);
+    }
+    CompletableFuture<GameController> future = loadingMap.get(name);
+    if (future == null) {
+      throw new IllegalArgumentException("Controller " + name + " was never added.");
+    }
+    pendingActivation = name;
+    return future.thenApply((controller) -> {
+      if (name.equals(pendingActivation)) {
+        activate(name);
+      }
+      return controller;
+    });
+  }
+
+  /**
+   * @return the future of a screen setup that is preloading, or null if it is not.
+   */
+  public CompletableFuture<GameController> getLoadingFuture(String name) {
+    return loadingMap.get(name);
+  }
+
+  /**
+   * @return whether or not a screen setup is loaded and ready to activate.
+   */
+  public boolean isLoaded(String name) {
+    return controllerMap.containsKey(name);
+  }
+
+  /**
+   * Create an {@code FXMLLoader} for a .fxml file. The file itself is read through {@code
+   * AssetBundle.load()}; the location only resolves relative references in it.
    *
    * @param filePath the path to the .fxml file.
    * @return an {@code FXMLLoader} of the specified .fxml file.
@@ -128,17 +477,32 @@ public class SceneController {
   }
 
   /**
-   * Resets the controller of the given name by replacing the current instance in the {@code
-   * controllerMap} with a new instance. It will need to be reactivated in order to see changes.
+   * Resets the controller of the given name to the state it was in right after it was loaded. The
+   * state is restored in memory if it can be. Otherwise the current instance in the {@code
+   * controllerMap} is replaced with a new instance, which will need to be reactivated in order to
+   * see changes.
    *
    * @param name the name of the controller to reset.
    * @throws IOException if it cannot reload the .fxml file at the previously given path.
    */
-  private void resetController(String name) throws IOException {
+  public void resetController(String name) throws IOException {
     System.out.println("Resetting controller " + name + "...");
-    screenMap.remove(name);
-    controllerMap.remove(name);
-    addScreen(name, filePathMap.get(name));
+    //Look the entry up, since get() would mark the screen as recently used
+    GameController controller = null;
+    if (controllerMap.containsKey(name)) {
+      for (Entry<String, GameController> entry : controllerMap.entrySet()) {
+        if (entry.getKey().equals(name)) {
+          controller = entry.getValue();
+          break;
+        }
+      }
+    }
+    if (controller != null && controller.resetToStart()) {
+      System.out.println("Controller " + name + " has been reset.\n");
+      return;
+    }
+    removeScreen(name);
+    addScreen(name);
   }
 
 }
@@ -0,0 +1,245 @@
+package utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@code SharedMemoryChannel} passes small fixed-size frames between two local processes through
+ * a memory-mapped file. One side publishes numbered requests, and the other answers each one with
+ * a response of the same number.<br><br> Requests and responses go into a ring of {@code SLOTS}
+ * slots each, chosen by the frame number, so a new request never overwrites the one still being
+ * read. A reader confirms with {@code isCurrent()} that its slot was not reused while it read.
+ * Waiting spins briefly, then yields, then parks in short intervals until the timeout. Spinning is
+ * skipped on a single core, where it would only delay the other process.<br><br> The side that
+ * creates the channel owns its file. Both mappings stay valid without the file, so the owner
+ * deletes it as soon as it sees the other side is ready, and at the latest when it closes the
+ * channel.
+ *
+ * @author Russell Newton
+ * @see RemoteController
+ **/
+public class SharedMemoryChannel implements Closeable {
+
+  public static final int SLOTS = 4;
+  public static final int SLOT_SIZE = 64;
+
+  private static final int REQUEST_SEQUENCE = 0;
+  private static final int RESPONSE_SEQUENCE = 64;
+  private static final int CLOSED = 128;
+  private static final int READY = 192;
+  private static final int REQUEST_SLOTS = 256;
+  private static final int RESPONSE_SLOTS = REQUEST_SLOTS + SLOTS * SLOT_SIZE;
+  private static final int SIZE = RESPONSE_SLOTS + SLOTS * SLOT_SIZE;
+  private static final int SPIN_ITERATIONS =
+      Runtime.getRuntime().availableProcessors() > 1 ? 5000 : 0;
+  private static final int YIELD_ITERATIONS = 100;
+  private static final long PARK_NANOS = 20_000;
+
+  private static final VarHandle LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final VarHandle INTS =
+      MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+  private final Path path;
+  private final FileChannel file;
+  private final MappedByteBuffer buffer;
+  private final boolean isOwner;
+  private volatile boolean isFileDeleted = false;
+
+  private SharedMemoryChannel(Path path, boolean isOwner) throws IOException {
+    this.path = path;
+    this.isOwner = isOwner;
+    file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    buffer = file.map(MapMode.READ_WRITE, 0, SIZE);
+    buffer.order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Create a new channel in a temporary file, owned by this side.
+   */
+  public static SharedMemoryChannel create() throws IOException {
+    Path path = Files.createTempFile("controller", ".channel");
+    try {
+      Files.write(path, new byte[SIZE]);
+      return new SharedMemoryChannel(path, true);
+    } catch (IOException e) {
+      Files.deleteIfExists(path);
+      throw e;
+    }
+  }
+
+  /**
+   * Open a channel created by another process.
+   */
+  public static SharedMemoryChannel open(Path path) throws IOException {
+    return new SharedMemoryChannel(path, false);
+  }
+
+  /**
+   * @return the file backing this channel. Pass it to the other process.
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * @return the mapped buffer, in native byte order. Frames are read and written at the offsets
+   * given by {@code requestOffset()} and {@code responseOffset()}.
+   */
+  public MappedByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return the buffer offset of the request slot for frame {@code sequence}.
+   */
+  public int requestOffset(long sequence) {
+    return REQUEST_SLOTS + (int) (sequence % SLOTS) * SLOT_SIZE;
+  }
+
+  /**
+   * @return the buffer offset of the response slot for frame {@code sequence}.
+   */
+  public int responseOffset(long sequence) {
+    return RESPONSE_SLOTS + (int) (sequence % SLOTS) * SLOT_SIZE;
+  }
+
+  /**
+   * Make request {@code sequence} visible to the other process. Write its slot first.
+   */
+  public void publishRequest(long sequence) {
+    LONGS.setVolatile(buffer, REQUEST_SEQUENCE, sequence);
+  }
+
+  /**
+   * Make response {@code sequence} visible to the other process. Write its slot first.
+   */
+  public void publishResponse(long sequence) {
+    LONGS.setVolatile(buffer, RESPONSE_SEQUENCE, sequence);
+  }
+
+  /**
+   * Wait for the response to request {@code sequence}.
+   *
+   * @return whether or not it arrived before the timeout.
+   */
+  public boolean awaitResponse(long sequence, long timeoutNanos) {
+    return awaitAtLeast(RESPONSE_SEQUENCE, sequence, timeoutNanos) == sequence;
+  }
+
+  /**
+   * Wait for a request newer than {@code lastSequence}.
+   *
+   * @return the newest request's sequence, or -1 if none arrived before the timeout or the
+   * channel was closed.
+   */
+  public long awaitRequest(long lastSequence, long timeoutNanos) {
+    return awaitAtLeast(REQUEST_SEQUENCE, lastSequence + 1, timeoutNanos);
+  }
+
+  /**
+   * @return whether or not the request slot of {@code sequence} still holds that request. Check
+   * this after reading it.
+   */
+  public boolean isCurrent(long sequence) {
+    return (long) LONGS.getVolatile(buffer, REQUEST_SEQUENCE) - sequence < SLOTS;
+  }
+
+  /**
+   * Tell the requesting side that the responding side is ready.
+   */
+  public void markReady() {
+    INTS.setVolatile(buffer, READY, 1);
+  }
+
+  /**
+   * @return whether or not the responding side is ready. The owner deletes the file the first time
+   * this is true, since the other side has mapped it by then.
+   */
+  public boolean isReady() {
+    boolean isReady = (int) INTS.getVolatile(buffer, READY) != 0;
+    if (isReady && isOwner && !isFileDeleted) {
+      deleteFile();
+    }
+    return isReady;
+  }
+
+  /**
+   * Tell both sides to stop waiting for frames.
+   */
+  public void markClosed() {
+    INTS.setVolatile(buffer, CLOSED, 1);
+  }
+
+  /**
+   * @return whether or not either side has closed the channel.
+   */
+  public boolean isClosed() {
+    return (int) INTS.getVolatile(buffer, CLOSED) != 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    markClosed();
+    file.close();
+    if (isOwner && !isFileDeleted) {
+      deleteFile();
+    }
+  }
+
+  private synchronized void deleteFile() {
+    if (isFileDeleted) {
+      return;
+    }
+    isFileDeleted = true;
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      System.out.println("Channel file " + path + " cannot be deleted.");
+      e.printStackTrace();
+    }
+  }
+
+  private long awaitAtLeast(int offset, long target, long timeoutNanos) {
+    long value;
+    for (int spin = 0; spin < SPIN_ITERATIONS; spin++) {
+      value = (long) LONGS.getVolatile(buffer, offset);
+      if (value >= target) {
+        return value;
+      }
+      Thread.onSpinWait();
+    }
+
+    long deadline = System.nanoTime() + timeoutNanos;
+    for (int yield = 0; yield < YIELD_ITERATIONS && System.nanoTime() - deadline < 0; yield++) {
+      value = (long) LONGS.getVolatile(buffer, offset);
+      if (value >= target) {
+        return value;
+      }
+      Thread.yield();
+    }
+
+    while (!isClosed()) {
+      value = (long) LONGS.getVolatile(buffer, offset);
+      if (value >= target) {
+        return value;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        break;
+      }
+      LockSupport.parkNanos(Math.min(remaining, PARK_NANOS));
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,151 @@
+package utilities;
+
+import static utilities.metadata.StaticUtilities.STATE_KEYFRAME_INTERVAL;
+import static utilities.metadata.StaticUtilities.STATE_RECORDING_BUFFER_SIZE;
+import static utilities.metadata.StaticUtilities.STEP_INTERVAL;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * A {@code StateRecorder} appends the state of a {@code GameController's} moving bodies to a file
+ * every execution cycle, so a session can be scrubbed through afterwards with a {@code
+ * StateReplay}.<br><br> The bodies are the non-static {@code Obstacles}, the bots, and the {@code
+ * Player}, which is always the last row. Every {@code STATE_KEYFRAME_INTERVAL} cycles, and whenever
+ * the bots change, the full state is written as a keyframe. Every other cycle only the rows and
+ * fields that changed since the cycle before are written, in the delta encoding of {@code
+ * NetworkSnapshot}. Records are collected in a direct buffer and written in large blocks.<br><br>
+ * The file is a header followed by records of {@code [int tick][byte type][short rows][int
+ * length]} and {@code length} bytes of delta.
+ *
+ * @author Russell Newton
+ * @see StateReplay
+ **/
+public class StateRecorder implements Closeable, TickListener {
+
+  static final int MAGIC = 0x4B535441;
+  static final short VERSION = 1;
+  static final int HEADER_SIZE = 18;
+  static final int RECORD_HEADER_SIZE = 11;
+  static final byte KEYFRAME = 1;
+  static final byte DELTA = 2;
+
+  private final GameController controller;
+  private final FileChannel file;
+  private final ArrayList<Obstacle> entities = new ArrayList<>();
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(STATE_RECORDING_BUFFER_SIZE);
+  private NetworkSnapshot current = new NetworkSnapshot();
+  private NetworkSnapshot previous = new NetworkSnapshot();
+  private int tick = 0;
+  private int botCount = -1;
+  private long bytesWritten = 0;
+  private long keyframes = 0;
+
+  /**
+   * Start a new recording of {@code controller}, replacing {@code path} if it exists.
+   *
+   * @throws IOException if the file cannot be created.
+   */
+  public StateRecorder(GameController controller, Path path) throws IOException {
+    this.controller = controller;
+    file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    buffer.putInt(MAGIC);
+    buffer.putShort(VERSION);
+    buffer.putInt(STATE_KEYFRAME_INTERVAL);
+    buffer.putDouble(STEP_INTERVAL);
+  }
+
+  /**
+   * Record the current state. This is run by the controller at the end of every execution cycle.
+   */
+  @Override
+  public void afterTick() {
+    boolean isKeyframe = tick % STATE_KEYFRAME_INTERVAL == 0;
+    if (botCount != controller.getBots().size()) {
+      entities.clear();
+      NetworkServer.addLevelEntities(controller, entities);
+      entities.add(controller.player);
+      botCount = controller.getBots().size();
+      isKeyframe = true;
+    }
+    current.capture(entities);
+
+    try {
+      reserve(RECORD_HEADER_SIZE + 2 + current.getCount() * NetworkSnapshot.MAX_ROW_SIZE);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+    int recordStart = buffer.position();
+    buffer.putInt(tick);
+    buffer.put(isKeyframe ? KEYFRAME : DELTA);
+    buffer.putShort((short) current.getCount());
+    buffer.putInt(0);
+    current.writeDelta(buffer, isKeyframe ? null : previous);
+    buffer.putInt(recordStart + 7, buffer.position() - recordStart - RECORD_HEADER_SIZE);
+
+    NetworkSnapshot swap = previous;
+    previous = current;
+    current = swap;
+    if (isKeyframe) {
+      keyframes++;
+    }
+    tick++;
+  }
+
+  /**
+   * Makes room for a record of up to {@code size} bytes, writing out the buffer if it is too full.
+   */
+  private void reserve(int size) throws IOException {
+    if (buffer.remaining() >= size) {
+      return;
+    }
+    flush();
+    if (buffer.capacity() < size) {
+      buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      bytesWritten += file.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Write out everything recorded and close the file.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    file.close();
+  }
+
+  /**
+   * @return the number of execution cycles recorded.
+   */
+  public int getTickCount() {
+    return tick;
+  }
+
+  /**
+   * @return the number of bytes recorded, including any not yet written out.
+   */
+  public long getSize() {
+    return bytesWritten + buffer.position();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("StateRecorder:[ticks:%d, keyframes:%d, %.1f KiB, %.1f B/tick]", tick,
+        keyframes, getSize() / 1024.0, tick == 0 ? 0 : (double) getSize() / tick);
+  }
+}
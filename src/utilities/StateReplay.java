@@ -0,0 +1,232 @@
+package utilities;
+
+import static utilities.StateRecorder.HEADER_SIZE;
+import static utilities.StateRecorder.KEYFRAME;
+import static utilities.StateRecorder.MAGIC;
+import static utilities.StateRecorder.RECORD_HEADER_SIZE;
+import static utilities.StateRecorder.VERSION;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+/**
+ * A {@code StateReplay} reads a file written by a {@code StateRecorder}. The file is memory-mapped
+ * and indexed by keyframe when it is opened. Seeking decodes the nearest keyframe at or before the
+ * target tick and applies the deltas after it, so no seek decodes more than {@code
+ * STATE_KEYFRAME_INTERVAL} records. Seeking forward from the current tick only applies the deltas
+ * in between.<br><br> A record cut off at the end of the file, as left by a crash, is ignored.
+ *
+ * @author Russell Newton
+ * @see StateRecorder
+ **/
+public class StateReplay implements Closeable {
+
+  private final FileChannel file;
+  private final MappedByteBuffer buffer;
+  private final int keyframeInterval;
+  private final double stepInterval;
+  private int[] keyframeTicks = new int[64];
+  private int[] keyframeOffsets = new int[64];
+  private int keyframeCount = 0;
+  private int lastTick = -1;
+  private NetworkSnapshot snapshot = new NetworkSnapshot();
+  private NetworkSnapshot scratch = new NetworkSnapshot();
+  private int tick = -1;
+  private int nextOffset = -1;
+
+  /**
+   * Open and index a recording.
+   *
+   * @throws IOException if the file cannot be read or is not a state recording.
+   */
+  public StateReplay(Path path) throws IOException {
+    file = FileChannel.open(path, StandardOpenOption.READ);
+    buffer = file.map(MapMode.READ_ONLY, 0, file.size());
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+        || buffer.getShort(4) != VERSION) {
+      file.close();
+      throw new IOException(path + " is not a state recording.");
+    }
+    keyframeInterval = buffer.getInt(6);
+    stepInterval = buffer.getDouble(10);
+    index();
+  }
+
+  /**
+   * Finds every keyframe by skipping from record header to record header.
+   */
+  private void index() {
+    int offset = HEADER_SIZE;
+    while (offset + RECORD_HEADER_SIZE <= buffer.limit()) {
+      int length = buffer.getInt(offset + 7);
+      if (length < 0 || offset + RECORD_HEADER_SIZE + length > buffer.limit()) {
+        break;
+      }
+      if (buffer.get(offset + 4) == KEYFRAME) {
+        if (keyframeCount == keyframeTicks.length) {
+          keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+          keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTicks[keyframeCount] = buffer.getInt(offset);
+        keyframeOffsets[keyframeCount] = offset;
+        keyframeCount++;
+      }
+      lastTick = buffer.getInt(offset);
+      offset += RECORD_HEADER_SIZE + length;
+    }
+  }
+
+  /**
+   * Move to the state at the end of execution cycle {@code target}. The target is clamped to the
+   * recorded ticks.
+   */
+  public void seek(int target) {
+    if (keyframeCount == 0) {
+      return;
+    }
+    target = Math.max(0, Math.min(target, lastTick));
+    int keyframe = Arrays.binarySearch(keyframeTicks, 0, keyframeCount, target);
+    if (keyframe < 0) {
+      keyframe = -keyframe - 2;
+    }
+    if (tick < keyframeTicks[keyframe] || tick > target) {
+      readRecord(keyframeOffsets[keyframe]);
+    }
+    while (tick < target) {
+      readRecord(nextOffset);
+    }
+  }
+
+  /**
+   * Move forward one execution cycle, if there is one.
+   */
+  public void next() {
+    seek(tick + 1);
+  }
+
+  /**
+   * Decodes the record at {@code offset} into {@code snapshot}.
+   */
+  private void readRecord(int offset) {
+    int length = buffer.getInt(offset + 7);
+    boolean isKeyframe = buffer.get(offset + 4) == KEYFRAME;
+    buffer.position(offset + RECORD_HEADER_SIZE);
+    scratch.readDelta(buffer, isKeyframe ? null : snapshot, buffer.getShort(offset + 5));
+    NetworkSnapshot swap = snapshot;
+    snapshot = scratch;
+    scratch = swap;
+    tick = buffer.getInt(offset);
+    nextOffset = offset + RECORD_HEADER_SIZE + length;
+  }
+
+  /**
+   * Moves the bodies of {@code controller} to the current state. The controller should be a fresh
+   * copy of the recorded level, with the same bots.
+   */
+  public void apply(GameController controller) {
+    ArrayList<Obstacle> entities = new ArrayList<>();
+    NetworkServer.addLevelEntities(controller, entities);
+    entities.add(controller.player);
+    Vec2 position = new Vec2();
+    Vec2 velocity = new Vec2();
+    for (int i = 0; i < Math.min(entities.size(), snapshot.getCount()); i++) {
+      if (snapshot.isPresent(i)) {
+        Body body = entities.get(i).body;
+        snapshot.getPosition(i, position);
+        snapshot.getVelocity(i, velocity);
+        body.setTransform(position, snapshot.getAngle(i));
+        body.setLinearVelocity(velocity);
+      }
+    }
+  }
+
+  /**
+   * @return the execution cycle of the current state, or -1 before the first seek.
+   */
+  public int getTick() {
+    return tick;
+  }
+
+  /**
+   * @return the last execution cycle recorded.
+   */
+  public int getLastTick() {
+    return lastTick;
+  }
+
+  /**
+   * @return the seconds of play recorded.
+   */
+  public double getDuration() {
+    return (lastTick + 1) * stepInterval / 1000;
+  }
+
+  /**
+   * @return the number of cycles between keyframes the recording was made with.
+   */
+  public int getKeyframeInterval() {
+    return keyframeInterval;
+  }
+
+  /**
+   * @return the number of bodies in the current state. The last one is the {@code Player}.
+   */
+  public int getCount() {
+    return snapshot.getCount();
+  }
+
+  /**
+   * @return whether or not a body existed in the current state.
+   */
+  public boolean isPresent(int body) {
+    return snapshot.isPresent(body);
+  }
+
+  /**
+   * Writes the position of a body in the current state into {@code out}.
+   */
+  public void getPosition(int body, Vec2 out) {
+    snapshot.getPosition(body, out);
+  }
+
+  /**
+   * Writes the velocity of a body in the current state into {@code out}.
+   */
+  public void getVelocity(int body, Vec2 out) {
+    snapshot.getVelocity(body, out);
+  }
+
+  /**
+   * @return the angle of a body in the current state.
+   */
+  public float getAngle(int body) {
+    return snapshot.getAngle(body);
+  }
+
+  /**
+   * @return the motion flags of a body in the current state, or 0 if it is not an {@code Agent}.
+   */
+  public int getMotionFlags(int body) {
+    return snapshot.get(body, NetworkSnapshot.MOTION_FLAGS);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("StateReplay:[tick %d of %d, %d keyframes, %.1f s]", tick, lastTick,
+        keyframeCount, getDuration());
+  }
+}
@@ -0,0 +1,24 @@
+package utilities;
+
+/**
+ * A {@code TickListener} is an optional service a {@code GameController} runs around every
+ * execution cycle, such as a recorder or a network session. Listeners run in the order they were
+ * added, and can be added or removed while a cycle is running.
+ *
+ * @author Russell Newton
+ * @see GameController#addTickListener(TickListener)
+ **/
+public interface TickListener {
+
+  /**
+   * Run before the physics step.
+   */
+  default void beforeTick() {
+  }
+
+  /**
+   * Run after the {@code Player}, bots, and {@code Obstacles} are updated.
+   */
+  default void afterTick() {
+  }
+}
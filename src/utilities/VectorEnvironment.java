@@ -0,0 +1,275 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.function.Supplier;
+import org.jbox2d.callbacks.QueryCallback;
+import org.jbox2d.collision.AABB;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.Fixture;
+import utilities.metadata.AgentAction;
+
+/**
+ * A {@code VectorEnvironment} runs many headless copies of a level side by side for training
+ * movement policies. Every call to {@code step()} applies one set of {@code AgentAction} bits to
+ * each copy's {@code Player}, runs one execution cycle of every copy in parallel, and writes what
+ * each {@code Player} sees into one shared direct {@code FloatBuffer}.<br><br> The observation of
+ * copy {@code i} starts at float {@code i * OBSERVATION_SIZE}:<br> 0-1: position<br> 2-3:
+ * velocity<br> 4: {@code MotionState} flags<br> 5: 1 if grounded, otherwise 0<br> 6 onward: the
+ * {@code OBSERVED_FIXTURES} nearest solid {@code Fixtures} within {@code OBSERVATION_RADIUS}, each
+ * as the lower and upper corners of its AABB relative to the {@code Player}, nearest first. Unused
+ * slots are 0.<br><br> A copy is done when its controller finishes or it reaches the episode
+ * length. It is then put back in its starting state with {@code resetToStart()} before the next
+ * step, so neither stepping nor resetting allocates. A copy is only rebuilt from the level supplier
+ * if it cannot be restored, because bodies were added or removed during the episode. The JavaFX
+ * toolkit must be started before any copy is built.
+ *
+ * @author Russell Newton
+ * @see GameController#initializeHeadless()
+ **/
+public class VectorEnvironment {
+
+  public static final int OBSERVED_FIXTURES = 8;
+  public static final float OBSERVATION_RADIUS = 40;
+  public static final int OBSERVATION_SIZE = 6 + OBSERVED_FIXTURES * 4;
+
+  private final Supplier<? extends GameController> level;
+  private final int maxEpisodeTicks;
+  private final Environment[] environments;
+  private final FloatBuffer observations;
+  private final ParallelWorldStepper stepper;
+  private long totalSteps = 0;
+
+  /**
+   * Create a {@code VectorEnvironment} that steps on one thread per available core.
+   *
+   * @param level creates a new, uninitialized controller for the level.
+   * @param count the number of copies of the level.
+   * @param maxEpisodeTicks the number of execution cycles before a copy is done.
+   */
+  public VectorEnvironment(Supplier<? extends GameController> level, int count,
+      int maxEpisodeTicks) {
+    this(level, count, maxEpisodeTicks, new ParallelWorldStepper());
+  }
+
+  /**
+   * Create a {@code VectorEnvironment}.
+   *
+   * @param level creates a new, uninitialized controller for the level.
+   * @param count the number of copies of the level.
+   * @param maxEpisodeTicks the number of execution cycles before a copy is done.
+   * @param stepper the {@code ParallelWorldStepper} to step the copies on. It is cleared first.
+   */
+  public VectorEnvironment(Supplier<? extends GameController> level, int count,
+      int maxEpisodeTicks, ParallelWorldStepper stepper) {
+    this.level = level;
+    this.maxEpisodeTicks = maxEpisodeTicks;
+    this.stepper = stepper;
+    environments = new Environment[count];
+    observations = ByteBuffer.allocateDirect(count * OBSERVATION_SIZE * Float.BYTES)
+        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+    stepper.clear();
+    for (int i = 0; i < count; i++) {
+      Environment environment = new Environment(i);
+      environments[i] = environment;
+      stepper.add(environment::step);
+    }
+    reset();
+  }
+
+  /**
+   * Put every copy of the level back in its starting state.
+   *
+   * @return the observations of every copy.
+   */
+  public FloatBuffer reset() {
+    for (Environment environment : environments) {
+      environment.reset();
+    }
+    return observations;
+  }
+
+  /**
+   * Put one copy of the level back in its starting state.
+   *
+   * @param index the index of the copy.
+   * @return the observations of every copy.
+   */
+  public FloatBuffer reset(int index) {
+    environments[index].reset();
+    return observations;
+  }
+
+  /**
+   * Run one execution cycle of every copy.
+   *
+   * @param actions the {@code AgentAction} bits to hold in each copy, by index.
+   * @return the observations of every copy.
+   * @see AgentAction#of(AgentAction...)
+   */
+  public FloatBuffer step(int[] actions) {
+    if (actions.length != environments.length) {
+      throw new IllegalArgumentException("Expected " + environments.length + " actions, got "
+          + actions.length + ".");
+    }
+    for (int i = 0; i < environments.length; i++) {
+      Environment environment = environments[i];
+      if (environment.isDone) {
+        environment.reset();
+      }
+      environment.action = actions[i];
+    }
+    stepper.step();
+    totalSteps += environments.length;
+    return observations;
+  }
+
+  /**
+   * @return whether or not a copy finished during the last step. It will be reset before the next
+   * one.
+   */
+  public boolean isDone(int index) {
+    return environments[index].isDone;
+  }
+
+  /**
+   * @return the controller currently running a copy.
+   */
+  public GameController getController(int index) {
+    return environments[index].controller;
+  }
+
+  /**
+   * @return the shared observation buffer.
+   */
+  public FloatBuffer getObservations() {
+    return observations;
+  }
+
+  /**
+   * @return the number of copies of the level.
+   */
+  public int getCount() {
+    return environments.length;
+  }
+
+  /**
+   * @return the total number of copy steps run so far.
+   */
+  public long getTotalSteps() {
+    return totalSteps;
+  }
+
+  /**
+   * Stop the stepping threads. The {@code VectorEnvironment} cannot be used afterwards.
+   */
+  public void close() {
+    stepper.shutdown();
+  }
+
+  /**
+   * One copy of the level, with everything it needs to step and observe without allocating.
+   */
+  private final class Environment implements QueryCallback {
+
+    private final int offset;
+    private final AABB queryBox = new AABB();
+    private final float[] nearestBoxes = new float[OBSERVED_FIXTURES * 4];
+    private final float[] nearestDistances = new float[OBSERVED_FIXTURES];
+    private GameController controller;
+    private Body playerBody;
+    private int nearestCount;
+    private int action;
+    private int episodeTicks;
+    private boolean isDone;
+
+    private Environment(int index) {
+      offset = index * OBSERVATION_SIZE;
+    }
+
+    /**
+     * Restores the copy's starting snapshot, and only builds a new controller the first time or if
+     * the snapshot no longer matches its bodies.
+     */
+    private void reset() {
+      if (controller == null || !controller.resetToStart()) {
+        if (controller != null) {
+          controller.dispose();
+        }
+        controller = level.get();
+        controller.initializeHeadless();
+        playerBody = controller.player.body;
+      }
+      episodeTicks = 0;
+      isDone = false;
+      observe();
+    }
+
+    private void step() {
+      controller.player.setActions(action);
+      boolean isRunning = controller.tick();
+      episodeTicks++;
+      isDone = !isRunning || episodeTicks >= maxEpisodeTicks;
+      observe();
+    }
+
+    private void observe() {
+      Player player = controller.player;
+      Vec2 position = playerBody.getPosition();
+      Vec2 velocity = playerBody.getLinearVelocity();
+      observations.put(offset, position.x);
+      observations.put(offset + 1, position.y);
+      observations.put(offset + 2, velocity.x);
+      observations.put(offset + 3, velocity.y);
+      observations.put(offset + 4, player.getMotionFlags());
+      observations.put(offset + 5, player.isGrounded() ? 1 : 0);
+
+      nearestCount = 0;
+      queryBox.lowerBound.set(position.x - OBSERVATION_RADIUS, position.y - OBSERVATION_RADIUS);
+      queryBox.upperBound.set(position.x + OBSERVATION_RADIUS, position.y + OBSERVATION_RADIUS);
+      controller.world.queryAABB(this, queryBox);
+
+      int base = offset + 6;
+      for (int i = 0; i < OBSERVED_FIXTURES * 4; i++) {
+        float value = i < nearestCount * 4 ? nearestBoxes[i] : 0;
+        observations.put(base + i, value);
+      }
+    }
+
+    /**
+     * Keeps the nearest solid {@code Fixtures} of other bodies, sorted by distance.
+     */
+    @Override
+    public boolean reportFixture(Fixture fixture) {
+      if (fixture.getBody() == playerBody || fixture.isSensor()) {
+        return true;
+      }
+      AABB box = fixture.getAABB(0);
+      Vec2 position = playerBody.getPosition();
+      float dx = (box.lowerBound.x + box.upperBound.x) / 2 - position.x;
+      float dy = (box.lowerBound.y + box.upperBound.y) / 2 - position.y;
+      float distance = dx * dx + dy * dy;
+
+      int slot = nearestCount;
+      while (slot > 0 && nearestDistances[slot - 1] > distance) {
+        slot--;
+      }
+      if (slot == OBSERVED_FIXTURES) {
+        return true;
+      }
+      int last = Math.min(nearestCount, OBSERVED_FIXTURES - 1);
+      System.arraycopy(nearestDistances, slot, nearestDistances, slot + 1, last - slot);
+      System.arraycopy(nearestBoxes, slot * 4, nearestBoxes, slot * 4 + 4, (last - slot) * 4);
+      nearestDistances[slot] = distance;
+      nearestBoxes[slot * 4] = box.lowerBound.x - position.x;
+      nearestBoxes[slot * 4 + 1] = box.lowerBound.y - position.y;
+      nearestBoxes[slot * 4 + 2] = box.upperBound.x - position.x;
+      nearestBoxes[slot * 4 + 3] = box.upperBound.y - position.y;
+      nearestCount = Math.min(nearestCount + 1, OBSERVED_FIXTURES);
+      return true;
+    }
+  }
+}
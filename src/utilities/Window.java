@@ -1,18 +1,35 @@
 package utilities;
 
+import static utilities.SceneController.factoryOf;
 import static utilities.metadata.StaticUtilities.PRIMARY_SCREEN_BOUNDS;
 import static utilities.metadata.StaticUtilities.scene;
 import static utilities.metadata.StaticUtilities.sceneController;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import utilities.metadata.AssetBundle;
 
 /**
+ * Launches the game. Pass {@code --record=<file>} to record the first screen's key input until
+ * the window closes, or {@code --replay=<file>} to play a recording back on screen. Pass {@code
+ * --record-state=<file>} to also record the state of every moving body for scrubbing through
+ * later. Pass {@code --warmup=<ticks>} to run a hidden copy of the first screen for that many
+ * execution cycles before the window is shown, so the first frames do not stutter. About 5000
+ * cycles is enough for the built-in screens. Pass {@code --hot-reload} to rebuild the first
+ * screen's obstacles whenever its JSON files are saved.
+ *
  * @author Russell Newton
  */
 public class Window extends Application {
 
+  private GameController firstController;
+  private Path recordingPath;
 
   public static void main(String[] args) {
     launch(args);
@@ -20,8 +37,31 @@ public class Window extends Application {
 
   @Override
   public void start(Stage primaryStage) throws Exception {
-    addScreens();
-    sceneController.activate("test");
+    if (getParameters().getUnnamed().contains("--hot-reload")) {
+      //Load the levels from the same files that are watched
+      AssetBundle.addSourcePreference();
+    }
+    preloadScreens();
+    int warmUpTicks = Integer.parseInt(getParameters().getNamed().getOrDefault("warmup", "0"));
+    CompletableFuture<Void> warmUp = warmUpTicks > 0
+        ? sceneController.warmUp("test", warmUpTicks) : CompletableFuture.completedFuture(null);
+    warmUp.thenComposeAsync((ignored) -> sceneController.activateWhenReady("test"),
+        Platform::runLater)
+        .thenAccept((controller) -> {
+          startRecordingOrReplay(controller);
+          if (getParameters().getUnnamed().contains("--hot-reload")) {
+            //The controller holds its own preference while it watches
+            controller.watchLevelFiles();
+            AssetBundle.removeSourcePreference();
+          }
+          //Already showing unless warming up
+          primaryStage.show();
+        })
+        .exceptionally((e) -> {
+          e.printStackTrace();
+          Platform.exit();
+          return null;
+        });
 
     primaryStage.setScene(scene);
     primaryStage.setResizable(false);
@@ -32,16 +72,59 @@ public class Window extends Application {
     primaryStage.setWidth(PRIMARY_SCREEN_BOUNDS.getWidth());
     primaryStage.setHeight(PRIMARY_SCREEN_BOUNDS.getHeight());
 
-    primaryStage.show();
+    if (warmUpTicks == 0) {
+      primaryStage.show();
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (firstController == null) {
+      return;
+    }
+    firstController.stopStateRecording();
+    if (recordingPath == null) {
+      return;
+    }
+    InputRecording recording = firstController.stopRecording();
+    try {
+      recording.save(recordingPath);
+      System.out.println("Saved " + recording + " to " + recordingPath);
+    } catch (IOException e) {
+      System.out.println("Recording cannot be saved to " + recordingPath + ".");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Starts recording or replaying {@code controller}, as asked for on the command line.
+   */
+  private void startRecordingOrReplay(GameController controller) {
+    firstController = controller;
+    Map<String, String> named = getParameters().getNamed();
+    if (named.containsKey("replay")) {
+      try {
+        controller.startReplay(InputRecording.load(Paths.get(named.get("replay"))));
+      } catch (IOException e) {
+        System.out.println("Recording " + named.get("replay") + " cannot be loaded.");
+        e.printStackTrace();
+      }
+    } else if (named.containsKey("record")) {
+      recordingPath = Paths.get(named.get("record"));
+      controller.startRecording();
+    }
+    if (named.containsKey("record-state")) {
+      controller.startStateRecording(Paths.get(named.get("record-state")));
+    }
   }
 
   /**
-   * Add new {@code sceneController.addScreen()} calls here if you want to use multiple screens.
-   *
-   * @throws IOException if the .fxml file cannot be found
+   * Add new {@code sceneController.preloadScreen()} calls here if you want to use multiple screens.
+   * They load in the background, so put the first screen shown first. Screens are built in code;
+   * pass the path to a .fxml file instead of a factory to load one from a .fxml file.
    */
-  private void addScreens() throws IOException {
-    sceneController.addScreen("basic", "/assets/fxml/BasicGameController.fxml");
-    sceneController.addScreen("test", "/assets/fxml/TestGameController.fxml");
+  private void preloadScreens() {
+    sceneController.preloadScreen("test", factoryOf("TestGameController"));
+    sceneController.preloadScreen("basic", factoryOf("BasicGameController"));
   }
 }
@@ -1,28 +1,43 @@
 package utilities;
 
+import static utilities.metadata.StaticUtilities.CONTACT_EVENT_BUFFER_CAPACITY;
+
 import java.util.HashMap;
 import org.jbox2d.callbacks.ContactImpulse;
 import org.jbox2d.callbacks.ContactListener;
 import org.jbox2d.collision.Manifold;
+import org.jbox2d.common.Transform;
+import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.contacts.Contact;
 import utilities.metadata.ContactOperation;
 
 /**
  * A {@code WorldContactListener} is created in any {@code GameController} by default. It manages
- * and runs every {@code ContactOperation}.
+ * and runs every {@code ContactOperation}, and keeps the {@code ContactIndex} of touching {@code
+ * Fixtures} up to date.<br><br> If deferred delivery is enabled, {@code beginContact()} and {@code
+ * endContact()} events are recorded while the {@code World} steps and are delivered afterwards by
+ * {@code flushDeferredContacts()}. {@code ContactOperations} are then
+ * free to create or destroy bodies. {@code preSolve()} and {@code postSolve()} are always run
+ * immediately, since they act on the contact while it is being solved.
  *
  * @author Russell Newton
  * @see ContactOperation
  **/
 public class WorldContactListener implements ContactListener {
 
+  private final ContactIndex contactIndex = new ContactIndex();
   private HashMap<String, ContactOperation> contactOperations;
+  private boolean deferred = false;
+  private BufferedContact[] bufferedContacts = new BufferedContact[0];
+  private int bufferedContactCount = 0;
+  private boolean flushing = false;
 
   /**
    * Create a new {@code WorldContactListener}.
    */
   public WorldContactListener() {
     contactOperations = new HashMap<>();
+    growBuffer(CONTACT_EVENT_BUFFER_CAPACITY);
   }
 
   /**
@@ -34,6 +49,11 @@ public class WorldContactListener implements ContactListener {
    */
   @Override
   public void beginContact(Contact contact) {
+    contactIndex.beginContact(contact);
+    if (deferred && !flushing) {
+      bufferContact(contact, true);
+      return;
+    }
     for (ContactOperation contactOperation : contactOperations.values()) {
       contactOperation.beginContact(contact);
     }
@@ -48,6 +68,11 @@ public class WorldContactListener implements ContactListener {
    */
   @Override
   public void endContact(Contact contact) {
+    contactIndex.endContact(contact);
+    if (deferred && !flushing) {
+      bufferContact(contact, false);
+      return;
+    }
     for (ContactOperation contactOperation : contactOperations.values()) {
       contactOperation.endContact(contact);
     }
@@ -105,4 +130,158 @@ public class WorldContactListener implements ContactListener {
   public void removeContactOperation(String name) {
     contactOperations.remove(name);
   }
+
+  /**
+   * Delivers every begin and end event recorded since the last flush, in the order they were
+   * recorded, to the {@code ContactOperations} registered when the flush started. This is run by
+   * the {@code GameController} right after the {@code World} steps, and does nothing when deferred
+   * delivery is disabled.
+   */
+  public void flushDeferredContacts() {
+    if (flushing) {
+      return;
+    }
+    flushing = true;
+    //Operations may add or remove operations while they run, so deliver to a snapshot of them
+    ContactOperation[] operations = contactOperations.values().toArray(new ContactOperation[0]);
+    try {
+      for (int i = 0; i < bufferedContactCount; i++) {
+        BufferedContact contact = bufferedContacts[i];
+        for (ContactOperation contactOperation : operations) {
+          if (contact.isBegin) {
+            contactOperation.beginContact(contact);
+          } else {
+            contactOperation.endContact(contact);
+          }
+        }
+      }
+    } finally {
+      //Drop the fixture references so destroyed bodies are not kept reachable
+      for (int i = 0; i < bufferedContactCount; i++) {
+        bufferedContacts[i].clear();
+      }
+      bufferedContactCount = 0;
+      flushing = false;
+    }
+  }
+
+  /**
+   * @param deferred whether or not begin and end events should be held until {@code
+   * flushDeferredContacts()} is run. Any events still buffered when this is disabled are delivered
+   * right away.
+   */
+  public void setDeferred(boolean deferred) {
+    if (!deferred) {
+      flushDeferredContacts();
+    }
+    this.deferred = deferred;
+  }
+
+  /**
+   * @return the {@code ContactIndex} of every pair of {@code Fixtures} currently touching. It is
+   * kept up to date as soon as contacts begin or end, even when their events are deferred.
+   */
+  public ContactIndex getContactIndex() {
+    return contactIndex;
+  }
+
+  /**
+   * @return whether or not begin and end events are being deferred.
+   */
+  public boolean isDeferred() {
+    return deferred;
+  }
+
+  /**
+   * Records a begin or end event into the buffer. Only the latest event recorded for the same pair
+   * of fixture children is compared against: an event of the same type is a repeat and is dropped,
+   * and an event of the opposite type cancels it, since the pair is back where it started. Earlier
+   * events for the pair are left alone, so the order operations see is never changed.
+   */
+  private void bufferContact(Contact contact, boolean isBegin) {
+    Fixture fixtureA = contact.getFixtureA();
+    Fixture fixtureB = contact.getFixtureB();
+    int indexA = contact.getChildIndexA();
+    int indexB = contact.getChildIndexB();
+
+    //Events per step are few, so a linear scan is cheaper than hashing every pair
+    for (int i = bufferedContactCount - 1; i >= 0; i--) {
+      BufferedContact buffered = bufferedContacts[i];
+      if (buffered.isPair(fixtureA, indexA, fixtureB, indexB)) {
+        if (buffered.isBegin != isBegin) {
+          removeBuffered(i);
+        }
+        return;
+      }
+    }
+
+    if (bufferedContactCount == bufferedContacts.length) {
+      growBuffer(bufferedContacts.length * 2);
+    }
+    bufferedContacts[bufferedContactCount++].set(contact, isBegin);
+  }
+
+  /**
+   * Removes a recorded event, keeping the rest in order and its {@code BufferedContact} pooled.
+   */
+  private void removeBuffered(int index) {
+    BufferedContact removed = bufferedContacts[index];
+    removed.clear();
+    System.arraycopy(bufferedContacts, index + 1, bufferedContacts, index,
+        bufferedContactCount - index - 1);
+    bufferedContacts[--bufferedContactCount] = removed;
+  }
+
+  /**
+   * Grows the pool of {@code BufferedContacts}, keeping the ones already created.
+   */
+  private void growBuffer(int capacity) {
+    BufferedContact[] grown = new BufferedContact[Math.max(capacity, 1)];
+    System.arraycopy(bufferedContacts, 0, grown, 0, bufferedContacts.length);
+    for (int i = bufferedContacts.length; i < grown.length; i++) {
+      grown[i] = new BufferedContact();
+    }
+    bufferedContacts = grown;
+  }
+
+  /**
+   * A pooled copy of a {@code Contact} that stays valid after the engine has recycled the
+   * original. It is what {@code ContactOperations} receive when events are deferred.
+   */
+  private static final class BufferedContact extends Contact {
+
+    private boolean isBegin;
+
+    private BufferedContact() {
+      super(null);
+    }
+
+    private void set(Contact contact, boolean isBegin) {
+      init(contact.getFixtureA(), contact.getChildIndexA(), contact.getFixtureB(),
+          contact.getChildIndexB());
+      m_flags = contact.m_flags;
+      m_manifold.set(contact.getManifold());
+      m_friction = contact.getFriction();
+      m_restitution = contact.getRestitution();
+      m_tangentSpeed = contact.getTangentSpeed();
+      this.isBegin = isBegin;
+    }
+
+    private boolean isPair(Fixture fixtureA, int indexA, Fixture fixtureB, int indexB) {
+      return (m_fixtureA == fixtureA && m_indexA == indexA && m_fixtureB == fixtureB
+          && m_indexB == indexB)
+          || (m_fixtureA == fixtureB && m_indexA == indexB && m_fixtureB == fixtureA
+          && m_indexB == indexA);
+    }
+
+    private void clear() {
+      m_fixtureA = null;
+      m_fixtureB = null;
+    }
+
+    @Override
+    public void evaluate(Manifold manifold, Transform xfA, Transform xfB) {
+      //Buffered contacts are never solved
+    }
+  }
 }
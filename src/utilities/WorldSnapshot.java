@@ -0,0 +1,201 @@
+package utilities;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import javafx.util.Pair;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+/**
+ * A {@code WorldSnapshot} holds the simulation state of a {@code GameController} in memory: the
+ * transform, velocities, and awake flag of every body, the state each {@code Obstacle} keeps
+ * outside its body, such as a {@code KinematicObstacle's} place on its path or an {@code Agent's}
+ * jump count and motion flags, and the execution time.<br><br> A snapshot can only be restored
+ * into the controller it was taken from, while it still has the same bodies. Taking a snapshot
+ * allocates only when the controller has more bodies than the snapshot has room for, and restoring
+ * one never allocates, so one snapshot can be reused for every checkpoint of a level.
+ *
+ * @author Russell Newton
+ * @see GameController#saveSnapshot(WorldSnapshot)
+ * @see GameController#restoreSnapshot(WorldSnapshot)
+ **/
+public class WorldSnapshot {
+
+  private static final int BODY_FIELDS = 7;
+
+  private final Vec2 scratch = new Vec2();
+  private Body[] bodies = new Body[0];
+  private float[] bodyState = new float[0];
+  private int bodyCount = 0;
+  private double[] obstacleState = new double[0];
+  private int obstacleStateSize = 0;
+  private double executionTime = 0;
+  private GameController controller;
+
+  /**
+   * Saves the state of {@code controller}, replacing what this snapshot held.
+   *
+   * @return whether or not the controller has the same bodies and {@code Obstacle} state size as
+   * when this snapshot was last taken.
+   */
+  boolean capture(GameController controller, double executionTime) {
+    boolean isSameLayout = controller == this.controller
+        && controller.world.getBodyCount() == bodyCount;
+    this.controller = controller;
+    this.executionTime = executionTime;
+
+    bodyCount = controller.world.getBodyCount();
+    if (bodies.length < bodyCount) {
+      bodies = Arrays.copyOf(bodies, bodyCount);
+      bodyState = new float[bodyCount * BODY_FIELDS];
+    }
+    int i = 0;
+    for (Body body = controller.world.getBodyList(); body != null; body = body.getNext(), i++) {
+      int row = i * BODY_FIELDS;
+      isSameLayout &= bodies[i] == body;
+      bodies[i] = body;
+      bodyState[row] = body.getPosition().x;
+      bodyState[row + 1] = body.getPosition().y;
+      bodyState[row + 2] = body.getAngle();
+      bodyState[row + 3] = body.getLinearVelocity().x;
+      bodyState[row + 4] = body.getLinearVelocity().y;
+      bodyState[row + 5] = body.getAngularVelocity();
+      bodyState[row + 6] = body.isAwake() ? 1 : 0;
+    }
+    Arrays.fill(bodies, bodyCount, bodies.length, null);
+
+    int stateSize = getObstacleStateSize(controller);
+    isSameLayout &= stateSize == obstacleStateSize;
+    obstacleStateSize = stateSize;
+    if (obstacleState.length < obstacleStateSize) {
+      obstacleState = new double[obstacleStateSize];
+    }
+    int offset = 0;
+    for (Pair<String, Obstacle> obstacle : controller.getObstacles()) {
+      obstacle.getValue().saveState(obstacleState, offset);
+      offset += obstacle.getValue().getStateSize();
+    }
+    List<BotAgent> bots = controller.getBots();
+    for (int j = 0; j < bots.size(); j++) {
+      bots.get(j).saveState(obstacleState, offset);
+      offset += bots.get(j).getStateSize();
+    }
+    controller.player.saveState(obstacleState, offset);
+    return isSameLayout;
+  }
+
+  /**
+   * Puts {@code controller} back in the saved state.
+   *
+   * @return whether or not the state could be restored. It cannot if the snapshot is empty, was
+   * taken from another controller, or bodies have been added or removed since.
+   */
+  boolean restore(GameController controller) {
+    if (controller != this.controller || !hasSameBodies(controller)
+        || obstacleStateSize != getObstacleStateSize(controller)) {
+      return false;
+    }
+
+    for (int i = 0; i < bodyCount; i++) {
+      int row = i * BODY_FIELDS;
+      Body body = bodies[i];
+      scratch.set(bodyState[row], bodyState[row + 1]);
+      body.setTransform(scratch, bodyState[row + 2]);
+      scratch.set(bodyState[row + 3], bodyState[row + 4]);
+      body.setLinearVelocity(scratch);
+      body.setAngularVelocity(bodyState[row + 5]);
+      body.setAwake(bodyState[row + 6] != 0);
+    }
+
+    int offset = 0;
+    for (Pair<String, Obstacle> obstacle : controller.getObstacles()) {
+      obstacle.getValue().restoreState(obstacleState, offset);
+      offset += obstacle.getValue().getStateSize();
+    }
+    List<BotAgent> bots = controller.getBots();
+    for (int j = 0; j < bots.size(); j++) {
+      bots.get(j).restoreState(obstacleState, offset);
+      offset += bots.get(j).getStateSize();
+    }
+    controller.player.restoreState(obstacleState, offset);
+    return true;
+  }
+
+  /**
+   * @return the bytes {@code write()} uses. It is a multiple of 8.
+   */
+  int getRecordSize() {
+    return 8 + getBodyStateSize() + obstacleStateSize * 8;
+  }
+
+  /**
+   * Copies the saved values, without the bodies they belong to, into a buffer. Both views must
+   * cover the same buffer from its start.
+   *
+   * @param offset the byte offset to write at. It must be a multiple of 8.
+   */
+  void write(FloatBuffer floats, DoubleBuffer doubles, int offset) {
+    doubles.put(offset / 8, executionTime);
+    floats.position(offset / 4 + 2);
+    floats.put(bodyState, 0, bodyCount * BODY_FIELDS);
+    doubles.position((offset + 8 + getBodyStateSize()) / 8);
+    doubles.put(obstacleState, 0, obstacleStateSize);
+  }
+
+  /**
+   * Replaces the saved values with ones copied by {@code write()}. The bodies are kept, so they
+   * must be the ones the values were taken from.
+   */
+  void read(FloatBuffer floats, DoubleBuffer doubles, int offset) {
+    executionTime = doubles.get(offset / 8);
+    floats.position(offset / 4 + 2);
+    floats.get(bodyState, 0, bodyCount * BODY_FIELDS);
+    doubles.position((offset + 8 + getBodyStateSize()) / 8);
+    doubles.get(obstacleState, 0, obstacleStateSize);
+  }
+
+  private int getBodyStateSize() {
+    return (bodyCount * BODY_FIELDS * 4 + 7) & ~7;
+  }
+
+  /**
+   * @return the execution time the snapshot was taken at.
+   */
+  public double getExecutionTime() {
+    return executionTime;
+  }
+
+  /**
+   * @return whether or not nothing has been saved in this snapshot.
+   */
+  public boolean isEmpty() {
+    return controller == null;
+  }
+
+  private boolean hasSameBodies(GameController controller) {
+    if (controller.world.getBodyCount() != bodyCount) {
+      return false;
+    }
+    int i = 0;
+    for (Body body = controller.world.getBodyList(); body != null; body = body.getNext(), i++) {
+      if (bodies[i] != body) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int getObstacleStateSize(GameController controller) {
+    int size = controller.player.getStateSize();
+    for (Pair<String, Obstacle> obstacle : controller.getObstacles()) {
+      size += obstacle.getValue().getStateSize();
+    }
+    List<BotAgent> bots = controller.getBots();
+    for (int i = 0; i < bots.size(); i++) {
+      size += bots.get(i).getStateSize();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,46 @@
+package utilities.metadata;
+
+/**
+ * The actions an {@code Agent} can hold. An {@code Agent} is driven by a set of these, one bit per
+ * action, which is compared with the set from the last update to find which actions were just
+ * started, are held, or were just stopped. A {@code Player's KeyBinds} and a {@code BotAgent's}
+ * policy both drive their {@code Agent} this way.
+ *
+ * @author Russell Newton
+ **/
+public enum AgentAction {
+  JUMP,
+  WALK_LEFT,
+  WALK_RIGHT,
+  RUN;
+
+  private final int bit = 1 << ordinal();
+
+  /**
+   * @return the bit of this action in a set of actions.
+   */
+  public int getBit() {
+    return bit;
+  }
+
+  /**
+   * @return whether or not this action is in {@code actions}.
+   */
+  public boolean isIn(int actions) {
+    return (actions & bit) != 0;
+  }
+
+  /**
+   * Combine several actions into a set of actions.
+   *
+   * @param actions the actions.
+   * @return the bits of every action, or'd together.
+   */
+  public static int of(AgentAction... actions) {
+    int bits = 0;
+    for (AgentAction action : actions) {
+      bits |= action.bit;
+    }
+    return bits;
+  }
+}
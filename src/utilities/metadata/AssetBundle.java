@@ -0,0 +1,306 @@
+package utilities.metadata;
+
+import static utilities.metadata.StaticUtilities.ASSET_BUNDLE_PATH;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An {@code AssetBundle} is one indexed file holding every asset: sprites, obstacle JSON, and .fxml
+ * layouts. It is opened once and memory-mapped, and each asset is served as a read-only slice of
+ * the mapping, so nothing is copied until it is decoded.<br><br> Assets are named by their path
+ * under {@code src} with forward slashes, such as {@code /assets/sprites/mario3.png}, on every
+ * platform. Use {@code load()} to open one: it reads from the bundle at {@code ASSET_BUNDLE_PATH}
+ * if there is one, and otherwise falls back to the classpath and then to the {@code src} folder.
+ * While levels are hot-reloaded, the {@code src} folder is read first instead, so an edited file
+ * is never shadowed by an older copy.<br><br> The file is a header of {@code [int magic][short
+ * version][int count]}, an index of {@code [short name length][name][int offset][int length]} per
+ * asset, and the asset data. Build it from the project directory with:<br><br> {@code java
+ * utilities.metadata.AssetBundle [assets folder] [bundle]}
+ *
+ * @author Russell Newton
+ **/
+public class AssetBundle implements Closeable {
+
+  private static final int MAGIC = 0x4B534E44;
+  private static final short VERSION = 1;
+  private static AssetBundle defaultBundle;
+  private static boolean isDefaultOpened = false;
+  private static volatile int sourcePreferences = 0;
+
+  private final FileChannel file;
+  private final MappedByteBuffer buffer;
+  private final HashMap<String, Integer> offsets = new HashMap<>();
+  private final HashMap<String, Integer> lengths = new HashMap<>();
+
+  /**
+   * Open and index a bundle.
+   *
+   * @throws IOException if the file cannot be read or is not an asset bundle.
+   */
+  public AssetBundle(Path path) throws IOException {
+    file = FileChannel.open(path, StandardOpenOption.READ);
+    buffer = file.map(MapMode.READ_ONLY, 0, file.size());
+    if (buffer.limit() < 10 || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+      file.close();
+      throw new IOException(path + " is not an asset bundle.");
+    }
+    int count = buffer.getInt(6);
+    buffer.position(10);
+    byte[] name = new byte[256];
+    for (int i = 0; i < count; i++) {
+      int nameLength = buffer.getShort() & 0xFFFF;
+      if (name.length < nameLength) {
+        name = new byte[nameLength];
+      }
+      buffer.get(name, 0, nameLength);
+      String assetName = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+      offsets.put(assetName, buffer.getInt());
+      lengths.put(assetName, buffer.getInt());
+    }
+  }
+
+  /**
+   * @return the bundle at {@code ASSET_BUNDLE_PATH}, opened the first time this is called, or null
+   * if there is none.
+   */
+  public static synchronized AssetBundle getDefault() {
+    if (!isDefaultOpened) {
+      isDefaultOpened = true;
+      Path path = Paths.get(ASSET_BUNDLE_PATH);
+      if (Files.isRegularFile(path)) {
+        try {
+          defaultBundle = new AssetBundle(path);
+          System.out.println("Opened asset bundle " + path + " with "
+              + defaultBundle.getCount() + " assets.");
+        } catch (IOException e) {
+          System.out.println("Asset bundle " + path + " cannot be opened.");
+          e.printStackTrace();
+        }
+      }
+    }
+    return defaultBundle;
+  }
+
+  /**
+   * Read assets from the {@code src} folder before the default bundle and the classpath until every
+   * preference added is removed again. Each hot-reloading controller holds one while it watches
+   * its level files, so they are loaded and reloaded from the same files.
+   *
+   * @see #removeSourcePreference()
+   */
+  public static synchronized void addSourcePreference() {
+    sourcePreferences++;
+  }
+
+  /**
+   * Remove a preference added with {@code addSourcePreference()}. Once none are left, assets are
+   * read from the default bundle first again.
+   */
+  public static synchronized void removeSourcePreference() {
+    if (sourcePreferences > 0) {
+      sourcePreferences--;
+    }
+  }
+
+  /**
+   * Open an asset from the default bundle, the classpath, or the {@code src} folder, in that order,
+   * or from the {@code src} folder first if it is preferred.
+   *
+   * @param name the asset's path under {@code src}, such as {@code
+   * /assets/obstacles/Obstacles.json}.
+   * @return a stream of the asset's bytes.
+   * @throws FileNotFoundException if the asset is in none of them.
+   * @see #addSourcePreference()
+   */
+  public static InputStream load(String name) throws IOException {
+    Path path = getSourcePath(name);
+    if (sourcePreferences > 0 && Files.isRegularFile(path)) {
+      return Files.newInputStream(path);
+    }
+    AssetBundle bundle = getDefault();
+    if (bundle != null && bundle.contains(name)) {
+      return new SliceInputStream(bundle.get(name));
+    }
+    InputStream resource = AssetBundle.class.getResourceAsStream(name);
+    if (resource != null) {
+      return resource;
+    }
+    if (Files.isRegularFile(path)) {
+      return Files.newInputStream(path);
+    }
+    throw new FileNotFoundException("Asset " + name + " cannot be found.");
+  }
+
+  /**
+   * @return the file in the {@code src} folder an asset was built from.
+   */
+  public static Path getSourcePath(String name) {
+    return Paths.get("src", name.split("/"));
+  }
+
+  /**
+   * @return whether or not this bundle holds an asset.
+   */
+  public boolean contains(String name) {
+    return offsets.containsKey(name);
+  }
+
+  /**
+   * @return a read-only slice of the mapping holding an asset's bytes, or null if this bundle does
+   * not hold it.
+   */
+  public ByteBuffer get(String name) {
+    Integer offset = offsets.get(name);
+    if (offset == null) {
+      return null;
+    }
+    ByteBuffer slice = buffer.asReadOnlyBuffer();
+    slice.position(offset);
+    slice.limit(offset + lengths.get(name));
+    return slice.slice();
+  }
+
+  /**
+   * @return the number of assets in this bundle.
+   */
+  public int getCount() {
+    return offsets.size();
+  }
+
+  /**
+   * @return the names of the assets in this bundle.
+   */
+  public List<String> getNames() {
+    return new ArrayList<>(offsets.keySet());
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("AssetBundle:[%d assets, %.1f KiB]", getCount(),
+        buffer.capacity() / 1024.0);
+  }
+
+  /**
+   * Writes every file under {@code folder} into a new bundle, named by its path from the parent of
+   * {@code folder}.
+   *
+   * @throws IOException if a file cannot be read or the bundle cannot be written.
+   */
+  public static void write(Path folder, Path bundle) throws IOException {
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(folder)) {
+      files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    ArrayList<byte[]> names = new ArrayList<>();
+    int indexSize = 10;
+    for (Path asset : files) {
+      StringBuilder name = new StringBuilder();
+      for (Path part : folder.getParent().relativize(asset)) {
+        name.append('/').append(part);
+      }
+      names.add(name.toString().getBytes(StandardCharsets.UTF_8));
+      indexSize += 2 + names.get(names.size() - 1).length + 8;
+    }
+
+    ByteBuffer index = ByteBuffer.allocate(indexSize);
+    index.putInt(MAGIC);
+    index.putShort(VERSION);
+    index.putInt(files.size());
+    int offset = indexSize;
+    for (int i = 0; i < files.size(); i++) {
+      int length = (int) Files.size(files.get(i));
+      index.putShort((short) names.get(i).length);
+      index.put(names.get(i));
+      index.putInt(offset);
+      index.putInt(length);
+      offset += length;
+    }
+    index.flip();
+
+    try (FileChannel out = FileChannel.open(bundle, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (index.hasRemaining()) {
+        out.write(index);
+      }
+      for (Path asset : files) {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(asset));
+        while (data.hasRemaining()) {
+          out.write(data);
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path folder = Paths.get(args.length > 0 ? args[0] : "src/assets").toAbsolutePath();
+    Path bundle = Paths.get(args.length > 1 ? args[1] : ASSET_BUNDLE_PATH);
+    write(folder, bundle);
+    try (AssetBundle written = new AssetBundle(bundle)) {
+      System.out.println("Wrote " + written + " to " + bundle);
+    }
+  }
+
+  /**
+   * Reads a slice of the mapping without copying it first.
+   */
+  private static final class SliceInputStream extends InputStream {
+
+    private final ByteBuffer slice;
+
+    private SliceInputStream(ByteBuffer slice) {
+      this.slice = slice;
+    }
+
+    @Override
+    public int read() {
+      return slice.hasRemaining() ? slice.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!slice.hasRemaining()) {
+        return -1;
+      }
+      length = Math.min(length, slice.remaining());
+      slice.get(bytes, offset, length);
+      return length;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(0, Math.min(count, slice.remaining()));
+      slice.position(slice.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return slice.remaining();
+    }
+  }
+}
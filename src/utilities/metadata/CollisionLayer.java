@@ -0,0 +1,219 @@
+package utilities.metadata;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import org.jbox2d.dynamics.Filter;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.FixtureDef;
+
+/**
+ * {@code CollisionLayers} are named groups of {@code Fixtures}. Each layer owns one JBox2D category
+ * bit and a mask of the layers it is allowed to collide with. Two {@code Fixtures} only produce a
+ * contact if each of their layers accepts the other, so filtered pairs never reach the narrowphase
+ * or the {@code WorldContactListener}.<br><br> Layers can be defined here in code, or in the
+ * "layers" section of an obstacle JSON file. The registry is shared by every {@code
+ * GameController}, so a layer cannot be changed once it is defined: the filters of existing {@code
+ * Fixtures} would no longer match it.<br><br> The bodies and sensors of {@code Agents} collide with
+ * every layer but their own, so any layer of the level that accepts them is ground and wall to
+ * them. Layers defined for a level accept them unless they say otherwise.
+ *
+ * @author Russell Newton
+ * @see org.jbox2d.dynamics.Filter
+ **/
+public final class CollisionLayer {
+
+  private static final int MAX_LAYERS = 16;
+  private static final int ALL_LAYERS = 0xFFFF;
+  private static final LinkedHashMap<String, Integer> categories = new LinkedHashMap<>();
+  private static final HashMap<String, CollisionLayer> layers = new HashMap<>();
+  private static final String[] AGENT_LAYERS = {"player", "playerSensor", "agent"};
+
+  public static final CollisionLayer BOUNDARY = define("boundary");
+  public static final CollisionLayer OBSTACLE = define("obstacle");
+  public static final CollisionLayer PLAYER = define("player");
+  public static final CollisionLayer PLAYER_SENSOR = defineAgentLayer("playerSensor");
+  public static final CollisionLayer AGENT = defineAgentLayer("agent");
+
+  private final String name;
+  private final int categoryBits;
+  private final int maskBits;
+
+  private CollisionLayer(String name, int categoryBits, int maskBits) {
+    this.name = name;
+    this.categoryBits = categoryBits;
+    this.maskBits = maskBits;
+  }
+
+  /**
+   * Define a new {@code CollisionLayer}. Defining a layer again with the same layers to collide
+   * with returns the existing one, so the same obstacle JSON file can be loaded many times. A layer
+   * may collide with layers that are not defined yet; their category bits are reserved for them.
+   *
+   * @param name the name of the layer.
+   * @param collidesWith the names of the layers this one collides with. If none are given, it
+   * collides with every layer.
+   * @return the {@code CollisionLayer}.
+   * @throws IllegalArgumentException if the layer is already defined to collide with other layers.
+   * @throws IllegalStateException if every category bit is already in use.
+   */
+  public static synchronized CollisionLayer define(String name, String... collidesWith) {
+    reserve(name);
+    int maskBits = collidesWith.length == 0 ? ALL_LAYERS : 0;
+    for (String other : collidesWith) {
+      maskBits |= reserve(other);
+    }
+    return register(name, maskBits);
+  }
+
+  /**
+   * Define a new {@code CollisionLayer} of a level, such as one from an obstacle JSON file. Unless
+   * {@code collidesWith} names one of the {@code Player}, sensor, or agent layers, the layer also
+   * collides with all three, so {@code Agents} can stand on it and feel it as a wall.
+   *
+   * @see #define(String, String...)
+   */
+  public static synchronized CollisionLayer defineForLevel(String name, String... collidesWith) {
+    for (String other : collidesWith) {
+      for (String agentLayer : AGENT_LAYERS) {
+        if (agentLayer.equals(other)) {
+          return define(name, collidesWith);
+        }
+      }
+    }
+    if (collidesWith.length == 0) {
+      return define(name);
+    }
+    String[] withAgents = Arrays.copyOf(collidesWith, collidesWith.length + AGENT_LAYERS.length);
+    System.arraycopy(AGENT_LAYERS, 0, withAgents, collidesWith.length, AGENT_LAYERS.length);
+    return define(name, withAgents);
+  }
+
+  /**
+   * Define a layer of {@code Agents'} bodies or sensors, which collides with every layer but the
+   * {@code Player}, sensor, and agent layers.
+   */
+  private static synchronized CollisionLayer defineAgentLayer(String name) {
+    reserve(name);
+    int agentBits = 0;
+    for (String agentLayer : AGENT_LAYERS) {
+      agentBits |= reserve(agentLayer);
+    }
+    return register(name, ALL_LAYERS & ~agentBits);
+  }
+
+  /**
+   * @return the layer named {@code name}, created with {@code maskBits} if it is not defined yet.
+   * @throws IllegalArgumentException if it is already defined with other mask bits.
+   */
+  private static CollisionLayer register(String name, int maskBits) {
+    int categoryBits = reserve(name);
+    CollisionLayer layer = layers.get(name);
+    if (layer == null) {
+      layer = new CollisionLayer(name, categoryBits, maskBits);
+      layers.put(name, layer);
+    } else if (layer.maskBits != maskBits) {
+      throw new IllegalArgumentException("Collision layer " + name
+          + " is already defined with different layers to collide with.");
+    }
+    return layer;
+  }
+
+  /**
+   * @return the category bit of a layer name, reserving the next free one if it has none.
+   */
+  private static int reserve(String name) {
+    Integer categoryBits = categories.get(name);
+    if (categoryBits == null) {
+      if (categories.size() == MAX_LAYERS) {
+        throw new IllegalStateException("Cannot define more than " + MAX_LAYERS
+            + " collision layers.");
+      }
+      categoryBits = 1 << categories.size();
+      categories.put(name, categoryBits);
+    }
+    return categoryBits;
+  }
+
+  /**
+   * Get a defined {@code CollisionLayer} by name. Unknown names fall back to {@code OBSTACLE}.
+   *
+   * @param name the name of the layer.
+   * @return the {@code CollisionLayer}.
+   */
+  public static synchronized CollisionLayer get(String name) {
+    CollisionLayer layer = layers.get(name);
+    if (layer == null) {
+      System.out.println("Collision layer " + name + " is not defined. Using "
+          + OBSTACLE.name + ".");
+      return OBSTACLE;
+    }
+    return layer;
+  }
+
+  /**
+   * Get the combined category bits of several layers.
+   *
+   * @param names the names of the layers.
+   * @return the category bits of every named layer, or'd together.
+   */
+  public static int getCategoryBits(String... names) {
+    int bits = 0;
+    for (String name : names) {
+      bits |= get(name).categoryBits;
+    }
+    return bits;
+  }
+
+  /**
+   * Set the category and mask bits of a {@code FixtureDef} to this layer's.
+   */
+  public void applyTo(FixtureDef fixtureDef) {
+    fixtureDef.filter.categoryBits = categoryBits;
+    fixtureDef.filter.maskBits = maskBits;
+  }
+
+  /**
+   * Set the category and mask bits of an existing {@code Fixture} to this layer's. This refilters
+   * any contacts it already has.
+   */
+  public void applyTo(Fixture fixture) {
+    Filter filter = fixture.getFilterData();
+    filter.categoryBits = categoryBits;
+    filter.maskBits = maskBits;
+    fixture.setFilterData(filter);
+  }
+
+  /**
+   * @return whether or not a {@code Fixture} belongs to this layer.
+   */
+  public boolean contains(Fixture fixture) {
+    return (fixture.getFilterData().categoryBits & categoryBits) != 0;
+  }
+
+  /**
+   * @return the name of this layer.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the category bit of this layer.
+   */
+  public int getCategoryBits() {
+    return categoryBits;
+  }
+
+  /**
+   * @return the category bits of the layers this one collides with.
+   */
+  public int getMaskBits() {
+    return maskBits;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,240 @@
+package utilities.metadata;
+
+import org.jbox2d.collision.AABB;
+import org.jbox2d.collision.Collision;
+import org.jbox2d.collision.Distance;
+import org.jbox2d.collision.TimeOfImpact;
+import org.jbox2d.common.Mat22;
+import org.jbox2d.common.Mat33;
+import org.jbox2d.common.Rot;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.common.Vec3;
+import org.jbox2d.dynamics.contacts.ChainAndCircleContact;
+import org.jbox2d.dynamics.contacts.ChainAndPolygonContact;
+import org.jbox2d.dynamics.contacts.CircleContact;
+import org.jbox2d.dynamics.contacts.Contact;
+import org.jbox2d.dynamics.contacts.EdgeAndCircleContact;
+import org.jbox2d.dynamics.contacts.EdgeAndPolygonContact;
+import org.jbox2d.dynamics.contacts.PolygonAndCircleContact;
+import org.jbox2d.dynamics.contacts.PolygonContact;
+import org.jbox2d.pooling.IDynamicStack;
+import org.jbox2d.pooling.IWorldPool;
+import org.jbox2d.pooling.normal.DefaultWorldPool;
+import org.jbox2d.pooling.normal.MutableStack;
+
+/**
+ * A {@code ContactStackPool} is a JBox2D {@code IWorldPool} whose contact stacks start at a given
+ * size. {@code DefaultWorldPool} reads that size from the global {@code
+ * Settings.CONTACT_STACK_INIT_SIZE}, which every {@code World} in the JVM shares, so this pool
+ * keeps its own stacks and hands everything else to a {@code DefaultWorldPool}.
+ *
+ * @author Russell Newton
+ * @see WorldSettings#setPoolCapacities(int, int, int)
+ **/
+class ContactStackPool implements IWorldPool {
+
+  private final DefaultWorldPool pool;
+  private final IDynamicStack<Contact> polygonStack;
+  private final IDynamicStack<Contact> circleStack;
+  private final IDynamicStack<Contact> polygonCircleStack;
+  private final IDynamicStack<Contact> edgeCircleStack;
+  private final IDynamicStack<Contact> edgePolygonStack;
+  private final IDynamicStack<Contact> chainCircleStack;
+  private final IDynamicStack<Contact> chainPolygonStack;
+
+  /**
+   * @param poolSize how many of each math object the pool starts with.
+   * @param poolContainerSize how many arrays of each size the pool keeps.
+   * @param contactStackSize how many contacts of each shape pairing the pool starts with.
+   */
+  ContactStackPool(int poolSize, int poolContainerSize, int contactStackSize) {
+    pool = new DefaultWorldPool(poolSize, poolContainerSize);
+    polygonStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new PolygonContact(pool);
+      }
+    };
+    circleStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new CircleContact(pool);
+      }
+    };
+    polygonCircleStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new PolygonAndCircleContact(pool);
+      }
+    };
+    edgeCircleStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new EdgeAndCircleContact(pool);
+      }
+    };
+    edgePolygonStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new EdgeAndPolygonContact(pool);
+      }
+    };
+    chainCircleStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new ChainAndCircleContact(pool);
+      }
+    };
+    chainPolygonStack = new MutableStack<Contact>(contactStackSize) {
+      @Override
+      protected Contact newInstance() {
+        return new ChainAndPolygonContact(pool);
+      }
+    };
+  }
+
+  @Override
+  public IDynamicStack<Contact> getPolyContactStack() {
+    return polygonStack;
+  }
+
+  @Override
+  public IDynamicStack<Contact> getCircleContactStack() {
+    return circleStack;
+  }
+
+  @Override
+  public IDynamicStack<Contact> getPolyCircleContactStack() {
+    return polygonCircleStack;
+  }
+
+  @Override
+  public IDynamicStack<Contact> getEdgeCircleContactStack() {
+    return edgeCircleStack;
+  }
+
+  @Override
+  public IDynamicStack<Contact> getEdgePolyContactStack() {
+    return edgePolygonStack;
+  }
+
+  @Override
+  public IDynamicStack<Contact> getChainCircleContactStack() {
+    return chainCircleStack;
+  }
+
+  @Override
+  public IDynamicStack<Contact> getChainPolyContactStack() {
+    return chainPolygonStack;
+  }
+
+  @Override
+  public Vec2 popVec2() {
+    return pool.popVec2();
+  }
+
+  @Override
+  public Vec2[] popVec2(int count) {
+    return pool.popVec2(count);
+  }
+
+  @Override
+  public void pushVec2(int count) {
+    pool.pushVec2(count);
+  }
+
+  @Override
+  public Vec3 popVec3() {
+    return pool.popVec3();
+  }
+
+  @Override
+  public Vec3[] popVec3(int count) {
+    return pool.popVec3(count);
+  }
+
+  @Override
+  public void pushVec3(int count) {
+    pool.pushVec3(count);
+  }
+
+  @Override
+  public Mat22 popMat22() {
+    return pool.popMat22();
+  }
+
+  @Override
+  public Mat22[] popMat22(int count) {
+    return pool.popMat22(count);
+  }
+
+  @Override
+  public void pushMat22(int count) {
+    pool.pushMat22(count);
+  }
+
+  @Override
+  public Mat33 popMat33() {
+    return pool.popMat33();
+  }
+
+  @Override
+  public void pushMat33(int count) {
+    pool.pushMat33(count);
+  }
+
+  @Override
+  public AABB popAABB() {
+    return pool.popAABB();
+  }
+
+  @Override
+  public AABB[] popAABB(int count) {
+    return pool.popAABB(count);
+  }
+
+  @Override
+  public void pushAABB(int count) {
+    pool.pushAABB(count);
+  }
+
+  @Override
+  public Rot popRot() {
+    return pool.popRot();
+  }
+
+  @Override
+  public void pushRot(int count) {
+    pool.pushRot(count);
+  }
+
+  @Override
+  public Collision getCollision() {
+    return pool.getCollision();
+  }
+
+  @Override
+  public TimeOfImpact getTimeOfImpact() {
+    return pool.getTimeOfImpact();
+  }
+
+  @Override
+  public Distance getDistance() {
+    return pool.getDistance();
+  }
+
+  @Override
+  public float[] getFloatArray(int length) {
+    return pool.getFloatArray(length);
+  }
+
+  @Override
+  public int[] getIntArray(int length) {
+    return pool.getIntArray(length);
+  }
+
+  @Override
+  public Vec2[] getVec2Array(int length) {
+    return pool.getVec2Array(length);
+  }
+}
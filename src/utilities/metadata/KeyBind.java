@@ -4,7 +4,7 @@ import javafx.scene.input.KeyCode;
 
 /**
  * {@code KeyBinds} should be created and passed in to the {@code Player implementKeyBind()} method
- * to function.
+ * to function. Their methods are run by the {@code GameController's InputDispatcher}.
  *
  * @author Russell Newton
  **/
@@ -29,22 +29,29 @@ public class KeyBind {
   }
 
   /**
-   * This method is automatically run every execution cycle for any {@code KeyBind} that has been
-   * passed to the {@code Player implementKeyBind()} method. It will run different {@code
-   * KeyBindHandler} methods depending on {@code status}.
+   * Run by the {@code InputDispatcher} when the key is pressed.
    */
-  public void handle() {
-    if (status.isRisingEdge()) {
-      status.set(true);         //Eliminate the rising edge status
-      handler.handleRisingEdge();
-    } else if (status.get()) {
-      handler.handlePeriodic();
-    } else if (status.isFallingEdge()) {
-      status.set(false);        //Eliminate the falling edge status
-      handler.handleFallingEdge();
-    } else if (!status.get()) {
-      handler.handleDisable();
-    }
+  public void handlePress() {
+    status.set(true);
+    handler.handleRisingEdge();
+    status.set(true);         //Eliminate the rising edge status
+  }
+
+  /**
+   * Run by the {@code InputDispatcher} every execution cycle while the key is held.
+   */
+  public void handleHold() {
+    handler.handlePeriodic();
+  }
+
+  /**
+   * Run by the {@code InputDispatcher} when the key is released.
+   */
+  public void handleRelease() {
+    status.set(false);
+    handler.handleFallingEdge();
+    status.set(false);        //Eliminate the falling edge status
+    handler.handleDisable();
   }
 
   /**
@@ -76,7 +83,8 @@ public class KeyBind {
     void handleFallingEdge();
 
     /**
-     * This method is run when the key is not being held.
+     * This method is run once when the key stops being held, right after {@code
+     * handleFallingEdge()}. Use it to reset anything the key set up.
      */
     void handleDisable();
   }
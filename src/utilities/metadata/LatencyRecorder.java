@@ -0,0 +1,76 @@
+package utilities.metadata;
+
+import java.util.Arrays;
+
+/**
+ * A {@code LatencyRecorder} keeps the most recent latency samples in a fixed ring and reports
+ * percentiles of them. Recording never allocates, so it can stay on during play.
+ *
+ * @author Russell Newton
+ **/
+public class LatencyRecorder {
+
+  private final long[] samples;
+  private final long[] sorted;
+  private int next = 0;
+  private int count = 0;
+  private long total = 0;
+
+  /**
+   * @param capacity how many of the most recent samples to keep.
+   */
+  public LatencyRecorder(int capacity) {
+    samples = new long[capacity];
+    sorted = new long[capacity];
+  }
+
+  /**
+   * Record one latency.
+   *
+   * @param nanos the latency in nanoseconds.
+   */
+  public synchronized void record(long nanos) {
+    samples[next] = nanos;
+    next = (next + 1) % samples.length;
+    count = Math.min(count + 1, samples.length);
+    total++;
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100.
+   * @return the latency in nanoseconds at {@code percentile} of the kept samples, or 0 if there are
+   * none.
+   */
+  public synchronized long getPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    System.arraycopy(samples, 0, sorted, 0, count);
+    Arrays.sort(sorted, 0, count);
+    int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+    return sorted[Math.max(0, Math.min(count - 1, index))];
+  }
+
+  /**
+   * @return how many samples have been recorded in total.
+   */
+  public synchronized long getTotalCount() {
+    return total;
+  }
+
+  /**
+   * Forget every sample.
+   */
+  public synchronized void clear() {
+    next = 0;
+    count = 0;
+    total = 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Latency:[samples:%d, p50:%.3fms, p90:%.3fms, p99:%.3fms, max:%.3fms]",
+        getTotalCount(), getPercentile(50) / 1e6, getPercentile(90) / 1e6,
+        getPercentile(99) / 1e6, getPercentile(100) / 1e6);
+  }
+}
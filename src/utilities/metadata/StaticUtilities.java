@@ -1,5 +1,7 @@
 package utilities.metadata;
 
+import java.io.IOException;
+import java.io.InputStream;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
@@ -25,6 +27,36 @@ public class StaticUtilities {
   public static final double FRAME_INTERVAL = 5.0;
   public static final int VELOCITY_ITERATIONS = 5;
   public static final int POSITION_ITERATIONS = 3;
+  public static final boolean DEFER_CONTACT_EVENTS = false;   //Deliver begin/end after each step
+  public static final int CONTACT_EVENT_BUFFER_CAPACITY = 64;
+  public static final int PHYSICS_SUB_STEPS = 1;   //Full execution cycles per FRAME_INTERVAL
+  public static final double STEP_INTERVAL = FRAME_INTERVAL / PHYSICS_SUB_STEPS;   //Ms per tick
+  public static final int INPUT_LATENCY_SAMPLES = 1024;
+  public static final long REMOTE_TICK_TIMEOUT = 2000;   //Microseconds to wait for a remote answer
+  public static final int REMOTE_MISSED_TICK_LIMIT = 100;
+  public static final long REMOTE_STARTUP_TIMEOUT = 10000;   //Milliseconds
+  public static final int NETWORK_SNAPSHOT_INTERVAL = 4 * PHYSICS_SUB_STEPS;   //Ticks, 20 ms
+  public static final int NETWORK_INTERPOLATION_DELAY = 8 * PHYSICS_SUB_STEPS;   //Ticks, 40 ms
+  public static final int NETWORK_SNAPSHOT_HISTORY = 32;
+  public static final int NETWORK_MAX_CLIENTS = 16;
+  public static final int NETWORK_MAX_PACKET_SIZE = 1200;   //Bytes, under the MTU of most links
+  public static final int NETWORK_MAX_QUEUED_INPUTS = 32;
+  public static final long NETWORK_CLIENT_TIMEOUT = 3000;   //Milliseconds
+  public static final float NETWORK_POSITION_PRECISION = 0.01f;
+  public static final float NETWORK_VELOCITY_PRECISION = 0.01f;
+  public static final float NETWORK_ANGLE_PRECISION = 0.001f;   //Radians
+  public static final float NETWORK_PREDICTION_TOLERANCE = 0.5f;
+  public static final int STATE_KEYFRAME_INTERVAL = 200;   //Ticks between full state keyframes
+  public static final int STATE_RECORDING_BUFFER_SIZE = 1 << 16;
+  public static final int REWIND_BUFFER_SIZE = 32 << 20;   //Most bytes of rewind history to keep
+  public static final int REWIND_INITIAL_BUFFER_SIZE = 1 << 20;   //Bytes, doubled when full
+  public static final int REWIND_SPEED = 2;   //Ticks rewound per tick while the rewind key is held
+  public static final String ASSET_BUNDLE_PATH = "assets.bundle";   //Relative to the working dir
+  public static final int SCREEN_LOADER_THREADS = 2;   //Threads that preload screens
+  public static final int WARMUP_ACTION_INTERVAL = 100;   //Ticks between random warm-up actions
+  public static final long WARMUP_SEED = 2019;
+  public static final int SCREEN_CACHE_SIZE = 4;   //Loaded screens kept, counting the active one
+  public static final double SCREEN_CACHE_HEAP_FRACTION = 0.75;   //Heap share that evicts screens
   //
   //Obstacle constants
   //
@@ -45,6 +77,7 @@ public class StaticUtilities {
   public static final float DEFAULT_PLAYER_START_X = 48f;
   public static final float DEFAULT_PLAYER_START_Y = 75f;
   public static final Paint DEFAULT_PLAYER_FILL = Color.BLUE;
+  public static final Paint DEFAULT_BOT_FILL = Color.ORANGE;
   public static final float DEFAULT_PLAYER_MASS = 1;
   public static final float DEFAULT_PLAYER_FRICTION = 10;
   public static final float DEFAULT_PLAYER_RESTITUTION = 0f;
@@ -186,7 +219,7 @@ public class StaticUtilities {
       // Try from name within sprites assets folder
       try {
         System.out.print("Attempting to load sprite from sprites assets folder... ");
-        image = new Image("/assets/sprites/" + string);
+        image = loadImage("/assets/sprites/" + string);
         System.out.println("Success!");
       } catch (Exception e) {
         System.out.println("Failed.");
@@ -197,7 +230,7 @@ public class StaticUtilities {
       // Try from name within sprites assets folder
       try {
         System.out.print("Attempting to load sprite from sprites assets folder with \".png\"... ");
-        image = new Image("/assets/sprites/" + string + ".png");
+        image = loadImage("/assets/sprites/" + string + ".png");
         System.out.println("Success!");
       } catch (Exception e) {
         System.out.println("Failed.");
@@ -221,4 +254,15 @@ public class StaticUtilities {
     return getFillFromString(string, false);
   }
 
+  /**
+   * Decode an image asset through {@code AssetBundle.load()}.
+   *
+   * @throws IOException if the asset cannot be found.
+   */
+  private static Image loadImage(String name) throws IOException {
+    try (InputStream asset = AssetBundle.load(name)) {
+      return new Image(asset);
+    }
+  }
+
 }
@@ -0,0 +1,114 @@
+package utilities.metadata;
+
+import java.util.function.Supplier;
+import org.jbox2d.collision.broadphase.BroadPhaseStrategy;
+import org.jbox2d.collision.broadphase.DynamicTree;
+import org.jbox2d.common.Settings;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+/**
+ * {@code WorldSettings} decide how a {@code GameController's} JBox2D {@code World} is built: which
+ * broadphase it uses, how big its object pool starts, and which solver features are on. The
+ * setters return the {@code WorldSettings}, so they can be chained.<br><br> JBox2D 2.2.1.1 only
+ * ships the {@code DynamicTree} broadphase. Any other {@code BroadPhaseStrategy} can be supplied
+ * with {@code setBroadPhase()}.
+ *
+ * @author Russell Newton
+ **/
+public class WorldSettings {
+
+  private String broadPhaseName = "DynamicTree";
+  private Supplier<BroadPhaseStrategy> broadPhase = DynamicTree::new;
+  private int poolSize = World.WORLD_POOL_SIZE;
+  private int poolContainerSize = World.WORLD_POOL_CONTAINER_SIZE;
+  private int contactStackSize = Settings.CONTACT_STACK_INIT_SIZE;
+  private boolean allowSleep = true;
+  private boolean warmStarting = true;
+  private boolean continuousPhysics = true;
+  private boolean subStepping = false;
+
+  /**
+   * Build a new {@code World} with these settings.
+   *
+   * @param gravity the gravity of the {@code World}.
+   * @return the {@code World}.
+   */
+  public World createWorld(Vec2 gravity) {
+    ContactStackPool pool = new ContactStackPool(poolSize, poolContainerSize, contactStackSize);
+    World world = new World(gravity, pool, broadPhase.get());
+    world.setAllowSleep(allowSleep);
+    world.setWarmStarting(warmStarting);
+    world.setContinuousPhysics(continuousPhysics);
+    world.setSubStepping(subStepping);
+    return world;
+  }
+
+  /**
+   * Set the broadphase used to find overlapping {@code Fixtures}.
+   *
+   * @param name a name to report the broadphase by.
+   * @param broadPhase creates a new {@code BroadPhaseStrategy} for each {@code World}.
+   */
+  public WorldSettings setBroadPhase(String name, Supplier<BroadPhaseStrategy> broadPhase) {
+    this.broadPhaseName = name;
+    this.broadPhase = broadPhase;
+    return this;
+  }
+
+  /**
+   * Set the starting capacities of the {@code World's} object pool.
+   *
+   * @param poolSize how many of each math object (vectors, matrices, AABBs) the pool starts with.
+   * @param poolContainerSize how many arrays of each size the pool keeps.
+   * @param contactStackSize how many contacts of each shape pairing the pool starts with.
+   */
+  public WorldSettings setPoolCapacities(int poolSize, int poolContainerSize,
+      int contactStackSize) {
+    this.poolSize = poolSize;
+    this.poolContainerSize = poolContainerSize;
+    this.contactStackSize = contactStackSize;
+    return this;
+  }
+
+  /**
+   * @param allowSleep whether or not bodies at rest stop being simulated until something wakes
+   * them.
+   */
+  public WorldSettings setAllowSleep(boolean allowSleep) {
+    this.allowSleep = allowSleep;
+    return this;
+  }
+
+  /**
+   * @param warmStarting whether or not the solver starts from the last step's impulses.
+   */
+  public WorldSettings setWarmStarting(boolean warmStarting) {
+    this.warmStarting = warmStarting;
+    return this;
+  }
+
+  /**
+   * @param continuousPhysics whether or not fast bodies are checked for tunneling.
+   */
+  public WorldSettings setContinuousPhysics(boolean continuousPhysics) {
+    this.continuousPhysics = continuousPhysics;
+    return this;
+  }
+
+  /**
+   * @param subStepping whether or not time of impact events are solved one at a time.
+   */
+  public WorldSettings setSubStepping(boolean subStepping) {
+    this.subStepping = subStepping;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("WorldSettings:[broadPhase:%s, pool:%d/%d, contactStack:%d, sleep:%b, "
+            + "warmStarting:%b, continuous:%b, subStepping:%b]", broadPhaseName, poolSize,
+        poolContainerSize, contactStackSize, allowSleep, warmStarting, continuousPhysics,
+        subStepping);
+  }
+}